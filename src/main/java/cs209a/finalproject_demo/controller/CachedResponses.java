@@ -0,0 +1,22 @@
+package cs209a.finalproject_demo.controller;
+
+import cs209a.finalproject_demo.service.AnalyticsResultCache.CachedResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * 带 ETag 的分析接口响应：{@code If-None-Match} 与目前版本相同时直接返回 304，不计算也不读取缓存。
+ */
+final class CachedResponses {
+
+    private CachedResponses() {
+    }
+
+    static <T> ResponseEntity<T> respond(WebRequest request, CachedResult<T> result) {
+        if (request.checkNotModified(result.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(result.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(result.etag()).body(result.value());
+    }
+}
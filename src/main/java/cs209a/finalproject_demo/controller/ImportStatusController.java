@@ -0,0 +1,23 @@
+package cs209a.finalproject_demo.controller;
+
+import cs209a.finalproject_demo.importer.StackOverflowImportJob;
+import cs209a.finalproject_demo.service.dto.ImportStatusResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/import")
+public class ImportStatusController {
+
+    private final StackOverflowImportJob importJob;
+
+    public ImportStatusController(StackOverflowImportJob importJob) {
+        this.importJob = importJob;
+    }
+
+    @GetMapping("/status")
+    public ImportStatusResponse getStatus() {
+        return importJob.status();
+    }
+}
@@ -2,10 +2,16 @@ package cs209a.finalproject_demo.controller;
 
 import cs209a.finalproject_demo.service.AnalysisService;
 import cs209a.finalproject_demo.service.dto.MultithreadingPitfallResponse;
+import cs209a.finalproject_demo.service.dto.PitfallTrendResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/api/topics")
@@ -13,7 +19,6 @@ public class MultithreadingAnalysisController {
 
     private static final int DEFAULT_TOP = 5;
     private static final int MIN_TOP = 1;
-    private static final int MAX_TOP = 6;
 
     private final AnalysisService analysisService;
 
@@ -22,19 +27,29 @@ public class MultithreadingAnalysisController {
     }
 
     @GetMapping("/multithreading/pitfalls")
-    public MultithreadingPitfallResponse getMultithreadingPitfalls(
-            @RequestParam(value = "top", required = false) Integer top) {
+    public ResponseEntity<MultithreadingPitfallResponse> getMultithreadingPitfalls(
+            @RequestParam(value = "top", required = false) Integer top,
+            WebRequest request) {
         int sanitizedTop = sanitizeTop(top);
-        return analysisService.analyzeMultithreadingPitfalls(sanitizedTop);
+        return CachedResponses.respond(request, analysisService.analyzeMultithreadingPitfalls(sanitizedTop));
+    }
+
+    @GetMapping("/multithreading/pitfalls/trends")
+    public ResponseEntity<PitfallTrendResponse> getMultithreadingPitfallTrends(
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "bucket", defaultValue = "month") String bucket,
+            WebRequest request) {
+        return CachedResponses.respond(request, analysisService.analyzePitfallTrends(from, to, bucket));
     }
 
     private int sanitizeTop(Integer requestedTop) {
         if (requestedTop == null) {
             return DEFAULT_TOP;
         }
-        if (requestedTop < MIN_TOP || requestedTop > MAX_TOP) {
+        if (requestedTop < MIN_TOP) {
             throw new IllegalArgumentException(String.format(
-                    "Parameter 'top' must be between %d and %d.", MIN_TOP, MAX_TOP));
+                    "Parameter 'top' must be at least %d.", MIN_TOP));
         }
         return requestedTop;
     }
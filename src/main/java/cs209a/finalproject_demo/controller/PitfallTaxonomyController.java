@@ -0,0 +1,51 @@
+package cs209a.finalproject_demo.controller;
+
+import cs209a.finalproject_demo.service.PitfallTaxonomyService;
+import cs209a.finalproject_demo.service.dto.PitfallCategoryRequest;
+import cs209a.finalproject_demo.service.dto.PitfallCategoryResponse;
+import cs209a.finalproject_demo.service.dto.PitfallTaxonomyResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/topics/multithreading/pitfall-categories")
+public class PitfallTaxonomyController {
+
+    private final PitfallTaxonomyService taxonomyService;
+
+    public PitfallTaxonomyController(PitfallTaxonomyService taxonomyService) {
+        this.taxonomyService = taxonomyService;
+    }
+
+    @GetMapping
+    public PitfallTaxonomyResponse getCategories() {
+        return taxonomyService.describe();
+    }
+
+    @PostMapping
+    public ResponseEntity<PitfallCategoryResponse> createCategory(@RequestBody PitfallCategoryRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(taxonomyService.create(request));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<PitfallCategoryResponse> updateCategory(
+            @PathVariable("id") long id,
+            @RequestBody PitfallCategoryRequest request) {
+        return ResponseEntity.of(taxonomyService.update(id, request));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteCategory(@PathVariable("id") long id) {
+        return taxonomyService.delete(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,35 @@
+package cs209a.finalproject_demo.controller;
+
+import cs209a.finalproject_demo.service.QuestionSearchService;
+import cs209a.finalproject_demo.service.dto.QuestionSearchResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/questions")
+public class QuestionSearchController {
+
+    private final QuestionSearchService questionSearchService;
+
+    public QuestionSearchController(QuestionSearchService questionSearchService) {
+        this.questionSearchService = questionSearchService;
+    }
+
+    @GetMapping("/search")
+    public QuestionSearchResponse search(
+            @RequestParam(name = "q") String query,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "sort", defaultValue = "relevance") String sort,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor) {
+        return questionSearchService.search(query, tags, from, to, sort, limit, cursor);
+    }
+}
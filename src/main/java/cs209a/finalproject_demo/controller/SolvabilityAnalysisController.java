@@ -2,10 +2,12 @@ package cs209a.finalproject_demo.controller;
 
 import cs209a.finalproject_demo.service.SolvabilityAnalysisService;
 import cs209a.finalproject_demo.service.dto.SolvabilityComparisonResponse;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/topics")
@@ -18,13 +20,14 @@ public class SolvabilityAnalysisController {
     }
 
     @GetMapping("/solvability/compare")
-    public SolvabilityComparisonResponse compareSolvability(
+    public ResponseEntity<SolvabilityComparisonResponse> compareSolvability(
             @RequestParam(value = "minAcceptedAnswerScore", required = false) Integer minAcceptedAnswerScore,
             @RequestParam(value = "maxFirstAnswerHours", required = false) Integer maxFirstAnswerHours,
-            @RequestParam(value = "hardMinAnswerLatencyHours", required = false) Integer hardMinAnswerLatencyHours) {
-        return solvabilityAnalysisService.compareSolvability(
+            @RequestParam(value = "hardMinAnswerLatencyHours", required = false) Integer hardMinAnswerLatencyHours,
+            WebRequest request) {
+        return CachedResponses.respond(request, solvabilityAnalysisService.compareSolvability(
                 minAcceptedAnswerScore,
                 maxFirstAnswerHours,
-                hardMinAnswerLatencyHours);
+                hardMinAnswerLatencyHours));
     }
 }
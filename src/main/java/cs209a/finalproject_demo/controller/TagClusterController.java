@@ -0,0 +1,31 @@
+package cs209a.finalproject_demo.controller;
+
+import cs209a.finalproject_demo.service.TagClusterService;
+import cs209a.finalproject_demo.service.dto.TagClusterResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@RequestMapping("/api/topics")
+public class TagClusterController {
+
+    private final TagClusterService tagClusterService;
+
+    public TagClusterController(TagClusterService tagClusterService) {
+        this.tagClusterService = tagClusterService;
+    }
+
+    @GetMapping("/clusters")
+    public ResponseEntity<TagClusterResponse> getClusters(
+            @RequestParam(name = "minWeight", required = false) Integer minWeight,
+            @RequestParam(name = "minClusterSize", required = false) Integer minClusterSize,
+            @RequestParam(name = "maxIterations", required = false) Integer maxIterations,
+            WebRequest request) {
+        return CachedResponses.respond(request,
+                tagClusterService.getClusters(minWeight, minClusterSize, maxIterations));
+    }
+}
@@ -1,11 +1,18 @@
 package cs209a.finalproject_demo.controller;
 
 import cs209a.finalproject_demo.service.TopicCooccurrenceService;
+import cs209a.finalproject_demo.service.dto.ApproximateCooccurrenceResponse;
+import cs209a.finalproject_demo.service.dto.CooccurrenceMetric;
 import cs209a.finalproject_demo.service.dto.TopicCooccurrenceResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/api/topics")
@@ -18,7 +25,37 @@ public class TopicCooccurrenceController {
     }
 
     @GetMapping("/cooccurrence")
-    public TopicCooccurrenceResponse getTopPairs(@RequestParam(name = "top", required = false) Integer top) {
-        return topicCooccurrenceService.getTopPairs(top);
+    public ResponseEntity<TopicCooccurrenceResponse> getTopPairs(
+            @RequestParam(name = "top", required = false) Integer top,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "anchor", required = false) String anchor,
+            @RequestParam(name = "metric", defaultValue = "count") String metric,
+            @RequestParam(name = "minCount", required = false) Integer minCount,
+            @RequestParam(name = "mode", defaultValue = "exact") String mode,
+            WebRequest request) {
+        if (!"exact".equalsIgnoreCase(mode.trim())) {
+            throw new IllegalArgumentException("Parameter 'mode' must be 'exact' or 'approximate'.");
+        }
+        CooccurrenceMetric resolvedMetric = CooccurrenceMetric.from(metric);
+        return CachedResponses.respond(request,
+                topicCooccurrenceService.getTopPairs(top, from, to, anchor, resolvedMetric, minCount));
+    }
+
+    @GetMapping(value = "/cooccurrence", params = "mode=approximate")
+    public ResponseEntity<ApproximateCooccurrenceResponse> getApproximateTopPairs(
+            @RequestParam(name = "top", required = false) Integer top,
+            @RequestParam(name = "from", required = false) String from,
+            @RequestParam(name = "to", required = false) String to,
+            @RequestParam(name = "anchor", required = false) String anchor,
+            @RequestParam(name = "metric", defaultValue = "count") String metric,
+            @RequestParam(name = "minCount", required = false) Integer minCount,
+            WebRequest request) {
+        if (from != null || to != null || anchor != null || minCount != null
+                || CooccurrenceMetric.from(metric) != CooccurrenceMetric.COUNT) {
+            throw new IllegalArgumentException(
+                    "Approximate mode only supports 'top'; use mode=exact for from, to, anchor, metric or minCount.");
+        }
+        return CachedResponses.respond(request, topicCooccurrenceService.getApproximateTopPairs(top));
     }
 }
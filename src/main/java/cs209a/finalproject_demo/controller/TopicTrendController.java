@@ -4,10 +4,12 @@ import cs209a.finalproject_demo.service.TopicTrendService;
 import cs209a.finalproject_demo.service.dto.TopicTrendMetric;
 import cs209a.finalproject_demo.service.dto.TopicTrendResponse;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -23,13 +25,16 @@ public class TopicTrendController {
     }
 
     @GetMapping("/trends")
-    public TopicTrendResponse getTopicTrends(
+    public ResponseEntity<TopicTrendResponse> getTopicTrends(
             @RequestParam(required = false) List<String> tags,
             @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
             @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             @RequestParam(name = "bucket", defaultValue = "month") String bucket,
-            @RequestParam(name = "metric", defaultValue = "questions") String metric) {
-        TopicTrendMetric resolvedMetric = TopicTrendMetric.from(metric);
-        return topicTrendService.getTrends(tags, from, to, bucket, resolvedMetric);
+            @RequestParam(name = "metric", defaultValue = "questions") List<String> metric,
+            @RequestParam(name = "window", defaultValue = "0") int window,
+            @RequestParam(name = "yoy", defaultValue = "false") boolean yoy,
+            WebRequest request) {
+        List<TopicTrendMetric> metrics = TopicTrendMetric.fromAll(metric);
+        return CachedResponses.respond(request, topicTrendService.getTrends(tags, from, to, bucket, metrics, window, yoy));
     }
 }
@@ -0,0 +1,38 @@
+package cs209a.finalproject_demo.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把來源檔案拆成若干個 entry 交給 {@link EntryHandler} 解析。entry 序號依來源內的順序從 0 起算
+ * （包含被略過的目錄與非線程檔案），不同實作對同一檔案給出相同的序號，檢查點因此可以互通。
+ */
+public interface ArchiveReader {
+
+    /**
+     * @param firstEntry 序號小於此值的 entry 已經提交，直接略過
+     * @param bytesRead  已讀取的來源位元組數，用於進度回報
+     */
+    void read(Path source, long firstEntry, AtomicLong bytesRead, EntryHandler handler)
+            throws IOException, InterruptedException;
+
+    interface EntryHandler {
+
+        /**
+         * @return {@code false} 表示停止開啟新的 entry
+         */
+        boolean shouldContinue();
+
+        /**
+         * 在讀取端依序號遞增的順序呼叫，且早於對應的 {@link #readEntry}。
+         */
+        void beforeEntry(long entryIndex);
+
+        /**
+         * 解析單一 entry，不應關閉 {@code input}。並行實作可能在多個執行緒上同時呼叫。
+         */
+        void readEntry(long entryIndex, String name, InputStream input) throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,119 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.model.ImportBatchMarker;
+import cs209a.finalproject_demo.model.ImportCheckpoint;
+import cs209a.finalproject_demo.repository.ImportBatchMarkerRepository;
+import cs209a.finalproject_demo.repository.ImportCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * 匯入檢查點的讀寫。每個批次提交時，在同一個交易內寫入一筆批次標記並推進檢查點，
+ * 因此資料與檢查點要嘛一起生效、要嘛一起回滾；JVM 中斷後可從最後提交的批次續傳。
+ */
+@Component
+@RequiredArgsConstructor
+public class ImportCheckpointService {
+
+    private static final int FINGERPRINT_SAMPLE_BYTES = 1 << 20;
+
+    private final ImportCheckpointRepository checkpointRepository;
+    private final ImportBatchMarkerRepository batchMarkerRepository;
+
+    /**
+     * 以檔案大小、修改時間與首尾各 1 MB 內容的 SHA-256 作為來源指紋，避免為多 GB 檔案做全量雜湊。
+     */
+    public String fingerprint(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(16)
+                    .putLong(size)
+                    .putLong(Files.getLastModifiedTime(source).toMillis())
+                    .flip());
+            digestRange(channel, 0, Math.min(size, FINGERPRINT_SAMPLE_BYTES), digest);
+            if (size > FINGERPRINT_SAMPLE_BYTES) {
+                long tailStart = Math.max(FINGERPRINT_SAMPLE_BYTES, size - FINGERPRINT_SAMPLE_BYTES);
+                digestRange(channel, tailStart, size - tailStart, digest);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM 不支援 SHA-256", e);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ImportCheckpoint> find(String fingerprint) {
+        return checkpointRepository.findById(fingerprint);
+    }
+
+    /**
+     * 必須在批次寫入的交易中呼叫。
+     */
+    @Transactional
+    public void recordBatch(String fingerprint, String source, int threadCount, long[] position) {
+        ImportCheckpoint checkpoint = checkpointRepository.findById(fingerprint)
+                .orElseGet(() -> new ImportCheckpoint(fingerprint, source));
+        long batchNumber = checkpoint.getCommittedBatches() + 1;
+        checkpoint.setCommittedBatches(batchNumber);
+        checkpoint.setImportedCount(checkpoint.getImportedCount() + threadCount);
+        if (position != null) {
+            checkpoint.setEntryIndex(position[0]);
+            checkpoint.setEntryOffset(position[1]);
+        }
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+
+        ImportBatchMarker marker = new ImportBatchMarker();
+        marker.setFingerprint(fingerprint);
+        marker.setBatchNumber(batchNumber);
+        marker.setThreadCount(threadCount);
+        marker.setEntryIndex(checkpoint.getEntryIndex());
+        marker.setEntryOffset(checkpoint.getEntryOffset());
+        marker.setCommittedAt(checkpoint.getUpdatedAt());
+        batchMarkerRepository.save(marker);
+    }
+
+    /**
+     * 來源已完整讀完：標記完成並清除批次標記，之後同一指紋的匯入會直接略過。
+     */
+    @Transactional
+    public void markCompleted(String fingerprint, String source) {
+        ImportCheckpoint checkpoint = checkpointRepository.findById(fingerprint)
+                .orElseGet(() -> new ImportCheckpoint(fingerprint, source));
+        checkpoint.setCompleted(true);
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+        batchMarkerRepository.deleteByFingerprint(fingerprint);
+    }
+
+    private void digestRange(FileChannel channel, long start, long length, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, 64 * 1024));
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.service.dto.ImportStatusResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * 啟動時的初始載入進行中時回報 OUT_OF_SERVICE。此指標被納入 readiness 健康群組，
+ * 負載平衡器會暫時繞過仍在載入資料的實例；分析端點本身照常可用。
+ * 初始載入結束後，執行期間的匯入（例如投遞目錄的檔案）只反映在明細中，不會讓實例退出服務。
+ */
+@Component("importJobHealthIndicator")
+@RequiredArgsConstructor
+public class ImportJobHealthIndicator implements HealthIndicator {
+
+    private final StackOverflowImportJob importJob;
+
+    @Override
+    public Health health() {
+        ImportStatusResponse status = importJob.status();
+        Health.Builder builder = importJob.isInitialLoadActive() ? Health.outOfService() : Health.up();
+        builder.withDetail("state", status.state())
+                .withDetail("imported", status.imported())
+                .withDetail("scanned", status.scanned());
+        if (status.etaSeconds() != null) {
+            builder.withDetail("etaSeconds", status.etaSeconds());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,158 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.service.dto.ImportStatusResponse;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 單次匯入的即時進度，由管線各階段更新、狀態端點與健康檢查讀取。
+ * ETA 取「已讀位元組比例」與「距離匯入門檻的剩餘筆數」兩種估計中較小者。
+ */
+public class ImportProgress {
+
+    public enum State {
+        IDLE,
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String source;
+    private final long target;
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile long bytesTotal;
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long startNanos;
+    private volatile long finishNanos;
+    private volatile String error;
+
+    public ImportProgress(String source, long target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    public static ImportProgress idle() {
+        ImportProgress progress = new ImportProgress(null, 0);
+        progress.state = State.IDLE;
+        return progress;
+    }
+
+    void start(long totalBytes) {
+        this.bytesTotal = totalBytes;
+        this.startedAt = Instant.now();
+        this.startNanos = System.nanoTime();
+        this.state = State.RUNNING;
+    }
+
+    void complete() {
+        finish(State.COMPLETED);
+    }
+
+    void fail(Throwable cause) {
+        this.error = cause.getMessage();
+        finish(State.FAILED);
+    }
+
+    private void finish(State finalState) {
+        this.finishNanos = System.nanoTime();
+        this.finishedAt = Instant.now();
+        this.state = finalState;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public boolean isActive() {
+        return state == State.QUEUED || state == State.RUNNING;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public long target() {
+        return target;
+    }
+
+    AtomicLong scanned() {
+        return scanned;
+    }
+
+    AtomicLong imported() {
+        return imported;
+    }
+
+    AtomicLong updated() {
+        return updated;
+    }
+
+    AtomicLong skipped() {
+        return skipped;
+    }
+
+    AtomicLong failed() {
+        return failed;
+    }
+
+    AtomicLong bytesRead() {
+        return bytesRead;
+    }
+
+    public double elapsedSeconds() {
+        if (startedAt == null) {
+            return 0;
+        }
+        long end = state == State.RUNNING ? System.nanoTime() : finishNanos;
+        return (end - startNanos) / 1_000_000_000.0;
+    }
+
+    public double ratePerSecond() {
+        double seconds = elapsedSeconds();
+        return seconds <= 0 ? 0 : imported.get() / seconds;
+    }
+
+    public ImportStatusResponse snapshot() {
+        return new ImportStatusResponse(
+                state.name(),
+                source,
+                target,
+                startedAt,
+                finishedAt,
+                scanned.get(),
+                imported.get(),
+                updated.get(),
+                skipped.get(),
+                failed.get(),
+                ratePerSecond(),
+                estimateRemainingSeconds(),
+                error);
+    }
+
+    private Long estimateRemainingSeconds() {
+        if (state != State.RUNNING) {
+            return null;
+        }
+        double elapsed = elapsedSeconds();
+        Double estimate = null;
+        long read = bytesRead.get();
+        if (bytesTotal > 0 && read > 0) {
+            estimate = elapsed * (bytesTotal - read) / read;
+        }
+        double rate = ratePerSecond();
+        if (target > 0 && rate > 0) {
+            double byTarget = Math.max(0, target - imported.get()) / rate;
+            estimate = estimate == null ? byTarget : Math.min(estimate, byTarget);
+        }
+        return estimate == null ? null : Math.round(estimate);
+    }
+}
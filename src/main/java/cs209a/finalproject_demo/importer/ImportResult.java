@@ -0,0 +1,17 @@
+package cs209a.finalproject_demo.importer;
+
+import java.time.Duration;
+
+public record ImportResult(
+        long scanned,
+        long imported,
+        long updated,
+        long skipped,
+        long failed,
+        Duration elapsed) {
+
+    public double throughput() {
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return seconds <= 0 ? 0 : imported / seconds;
+    }
+}
@@ -0,0 +1,134 @@
+package cs209a.finalproject_demo.importer;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 追蹤匯入記錄的「連續完成前綴」，用來算出可安全續傳的檢查點。
+ * <p>
+ * 讀取端依 entry 序號遞增的順序呼叫 {@link #openEntry}（entry 本身可以由多個執行緒並行解析），
+ * 每筆記錄以 {@link #register} 取得票據並登記其結尾位移，略過或提交後以 {@link #complete} 標記完成。
+ * {@link #position()} 回傳最小的未完成 entry 及其內部已完成前綴的位置；所有已開啟的 entry 都完成時，
+ * 則指向下一個 entry 的開頭。尚未完成的記錄數受管線佇列容量限制，因此這裡的暫存也是有界的。
+ */
+final class ImportWatermark {
+
+    record Ticket(long entryIndex, long local) {
+    }
+
+    private final TreeMap<Long, EntryProgress> openEntries = new TreeMap<>();
+    private long lastClosedEntry = -1;
+
+    synchronized void openEntry(long entryIndex, long startOffset) {
+        openEntries.put(entryIndex, new EntryProgress(startOffset));
+    }
+
+    synchronized Ticket register(long entryIndex, long endOffset) {
+        EntryProgress entry = openEntries.get(entryIndex);
+        long local = entry.nextLocal++;
+        entry.offsets.put(local, endOffset);
+        return new Ticket(entryIndex, local);
+    }
+
+    /**
+     * 讀取端已讀完該 entry，不會再登記新記錄。
+     */
+    synchronized void finishEntry(long entryIndex) {
+        EntryProgress entry = openEntries.get(entryIndex);
+        if (entry != null) {
+            entry.parsed = true;
+            closeIfDone(entryIndex, entry);
+        }
+    }
+
+    synchronized void complete(Ticket ticket) {
+        EntryProgress entry = openEntries.get(ticket.entryIndex());
+        if (entry != null) {
+            entry.complete(ticket.local());
+            closeIfDone(ticket.entryIndex(), entry);
+        }
+    }
+
+    synchronized void complete(Collection<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            complete(ticket);
+        }
+    }
+
+    /**
+     * 假設 {@code tickets} 已完成時的檢查點位置，供批次交易在提交前寫入；不會改變狀態。
+     *
+     * @return {@code {entryIndex, entryOffset}}，尚無任何進度時為 {@code null}
+     */
+    synchronized long[] previewWith(Set<Ticket> tickets) {
+        for (Map.Entry<Long, EntryProgress> open : openEntries.entrySet()) {
+            long entryIndex = open.getKey();
+            EntryProgress entry = open.getValue();
+            long through = entry.doneThrough;
+            while (through + 1 < entry.nextLocal
+                    && (entry.isAhead(through + 1) || tickets.contains(new Ticket(entryIndex, through + 1)))) {
+                through++;
+            }
+            if (!entry.parsed || through + 1 < entry.nextLocal) {
+                return entry.positionAt(entryIndex, through);
+            }
+        }
+        return lastClosedEntry >= 0 ? new long[] { lastClosedEntry + 1, 0 } : null;
+    }
+
+    synchronized long[] position() {
+        return previewWith(Set.of());
+    }
+
+    private void closeIfDone(long entryIndex, EntryProgress entry) {
+        if (entry.parsed && entry.doneThrough + 1 == entry.nextLocal) {
+            openEntries.remove(entryIndex);
+            lastClosedEntry = Math.max(lastClosedEntry, entryIndex);
+        }
+    }
+
+    private static final class EntryProgress {
+
+        private final Map<Long, Long> offsets = new HashMap<>();
+        private final BitSet completedAhead = new BitSet();
+        private long nextLocal;
+        private long doneThrough = -1;
+        private long doneOffset;
+        private boolean parsed;
+
+        private EntryProgress(long startOffset) {
+            this.doneOffset = startOffset;
+        }
+
+        private boolean isAhead(long local) {
+            return completedAhead.get((int) (local - doneThrough - 1));
+        }
+
+        private void complete(long local) {
+            if (local <= doneThrough) {
+                return;
+            }
+            completedAhead.set((int) (local - doneThrough - 1));
+            int shift = completedAhead.nextClearBit(0);
+            if (shift == 0) {
+                return;
+            }
+            for (long sequence = doneThrough + 1; sequence < doneThrough + shift; sequence++) {
+                offsets.remove(sequence);
+            }
+            doneThrough += shift;
+            doneOffset = offsets.remove(doneThrough);
+            BitSet remaining = completedAhead.get(shift, Math.max(shift, completedAhead.length()));
+            completedAhead.clear();
+            completedAhead.or(remaining);
+        }
+
+        private long[] positionAt(long entryIndex, long through) {
+            return new long[] { entryIndex, through == doneThrough ? doneOffset : offsets.get(through) };
+        }
+    }
+}
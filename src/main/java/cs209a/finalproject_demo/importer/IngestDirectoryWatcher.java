@@ -0,0 +1,171 @@
+package cs209a.finalproject_demo.importer;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 監看投放目錄，服務執行期間放進來的 zip / JSON / NDJSON 檔案會被增量匯入，不必重新啟動。
+ * <p>
+ * 檔案在大小與修改時間穩定一段時間後才提交匯入，避免讀到仍在複製中的檔案；
+ * 已有匯入在進行時則留在待處理清單中稍後重試。重複投放同一檔案會因檢查點已標記完成而直接略過。
+ */
+@Component
+@RequiredArgsConstructor
+public class IngestDirectoryWatcher implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestDirectoryWatcher.class);
+
+    private static final long POLL_MILLIS = 500;
+
+    private final StackOverflowImportJob importJob;
+
+    @Value("${app.data.ingest-dir:}")
+    private String ingestDir;
+
+    @Value("${app.data.ingest-settle-millis:2000}")
+    private long settleMillis;
+
+    /**
+     * 只由監看執行緒存取。
+     */
+    private final Map<Path, FileState> pending = new LinkedHashMap<>();
+    private volatile WatchService watchService;
+    private Thread watcherThread;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (ingestDir == null || ingestDir.isBlank()) {
+            return;
+        }
+        Path directory = Paths.get(ingestDir).toAbsolutePath();
+        Files.createDirectories(directory);
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        watcherThread = StackOverflowThreadImporter.namedThreads("so-ingest-watcher-").newThread(() -> watch(directory));
+        watcherThread.start();
+        log.info("開始監看投放目錄 {}。", directory);
+    }
+
+    private void watch(Path directory) {
+        scan(directory);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            scan(directory);
+                        } else {
+                            observe(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                }
+                submitSettled();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 應用關閉
+        }
+    }
+
+    private void scan(Path directory) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            files.forEach(this::observe);
+        } catch (IOException e) {
+            log.error("掃描投放目錄 {} 失敗：{}", directory, e.getMessage());
+        }
+    }
+
+    private void observe(Path file) {
+        if (!isIngestFile(file)) {
+            return;
+        }
+        FileState state = FileState.of(file);
+        if (state != null) {
+            pending.merge(file, state, (previous, current) -> previous.sameAs(current) ? previous : current);
+        }
+    }
+
+    private void submitSettled() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, FileState>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, FileState> entry = iterator.next();
+            FileState current = FileState.of(entry.getKey());
+            if (current == null) {
+                iterator.remove();
+                continue;
+            }
+            if (!current.sameAs(entry.getValue())) {
+                entry.setValue(current);
+                continue;
+            }
+            if (now - entry.getValue().observedAt() < settleMillis) {
+                continue;
+            }
+            if (!importJob.submit(entry.getKey(), 0)) {
+                return;
+            }
+            log.info("投放目錄偵測到新檔案 {}，開始增量匯入。", entry.getKey().getFileName());
+            iterator.remove();
+        }
+    }
+
+    private static boolean isIngestFile(Path file) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(".") || !Files.isRegularFile(file)) {
+            return false;
+        }
+        return name.toLowerCase(Locale.ENGLISH).endsWith(".zip") || ThreadStreamParser.isThreadFile(name);
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private record FileState(long size, long modifiedMillis, long observedAt) {
+
+        static FileState of(Path file) {
+            try {
+                return new FileState(Files.size(file), Files.getLastModifiedTime(file).toMillis(), System.currentTimeMillis());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        boolean sameAs(FileState other) {
+            return size == other.size && modifiedMillis == other.modifiedMillis;
+        }
+    }
+}
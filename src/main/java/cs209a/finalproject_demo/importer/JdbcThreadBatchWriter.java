@@ -0,0 +1,357 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.importer.StackOverflowThreadMapper.MappedThread;
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.AnswerComment;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionComment;
+import cs209a.finalproject_demo.model.Tag;
+import cs209a.finalproject_demo.service.TagDictionaryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以 JDBC 批次語句直接寫入五張表，每個批次每張表只送一次批次請求。
+ * 搭配 PostgreSQL 驅動的 {@code reWriteBatchedInserts=true} 時會被改寫成多列 INSERT。
+ */
+@Component
+@ConditionalOnProperty(name = "app.data.write-mode", havingValue = "jdbc")
+@RequiredArgsConstructor
+public class JdbcThreadBatchWriter implements ThreadBatchWriter {
+
+    private static final String INSERT_QUESTION = """
+            INSERT INTO questions (
+                id, title, body, answered, view_count, answer_count, score, question_link,
+                creation_date, last_activity_date, closed_date, closed_reason, accepted_answer_id,
+                owner_reputation, owner_user_id, owner_display_name, owner_profile_image, owner_link)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final String INSERT_ANSWER = """
+            INSERT INTO answers (
+                id, question_id, body, accepted, score, creation_date, last_activity_date,
+                owner_reputation, owner_user_id, owner_display_name, owner_profile_image, owner_link)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final String INSERT_QUESTION_COMMENT = """
+            INSERT INTO question_comments (
+                id, question_id, body, score, creation_date,
+                owner_user_id, owner_reputation, owner_display_name, owner_profile_image, owner_link)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final String INSERT_ANSWER_COMMENT = """
+            INSERT INTO answer_comments (
+                id, answer_id, body, score, creation_date,
+                owner_user_id, owner_reputation, owner_display_name, owner_profile_image, owner_link)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+
+    private static final String INSERT_QUESTION_TAG = """
+            INSERT INTO question_tags (question_id, tag_id)
+            VALUES (?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String MERGE_QUESTION = """
+            INSERT INTO questions (
+                id, title, body, answered, view_count, answer_count, score, question_link,
+                creation_date, last_activity_date, closed_date, closed_reason, accepted_answer_id,
+                owner_reputation, owner_user_id, owner_display_name, owner_profile_image, owner_link)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET
+                title = EXCLUDED.title, body = EXCLUDED.body, answered = EXCLUDED.answered,
+                view_count = EXCLUDED.view_count, answer_count = EXCLUDED.answer_count, score = EXCLUDED.score,
+                question_link = EXCLUDED.question_link, creation_date = EXCLUDED.creation_date,
+                last_activity_date = EXCLUDED.last_activity_date, closed_date = EXCLUDED.closed_date,
+                closed_reason = EXCLUDED.closed_reason, accepted_answer_id = EXCLUDED.accepted_answer_id,
+                owner_reputation = EXCLUDED.owner_reputation, owner_user_id = EXCLUDED.owner_user_id,
+                owner_display_name = EXCLUDED.owner_display_name,
+                owner_profile_image = EXCLUDED.owner_profile_image, owner_link = EXCLUDED.owner_link
+            WHERE (questions.title, questions.body, questions.answered, questions.view_count,
+                   questions.answer_count, questions.score, questions.question_link, questions.creation_date,
+                   questions.last_activity_date, questions.closed_date, questions.closed_reason,
+                   questions.accepted_answer_id, questions.owner_reputation, questions.owner_user_id,
+                   questions.owner_display_name, questions.owner_profile_image, questions.owner_link)
+                IS DISTINCT FROM
+                  (EXCLUDED.title, EXCLUDED.body, EXCLUDED.answered, EXCLUDED.view_count,
+                   EXCLUDED.answer_count, EXCLUDED.score, EXCLUDED.question_link, EXCLUDED.creation_date,
+                   EXCLUDED.last_activity_date, EXCLUDED.closed_date, EXCLUDED.closed_reason,
+                   EXCLUDED.accepted_answer_id, EXCLUDED.owner_reputation, EXCLUDED.owner_user_id,
+                   EXCLUDED.owner_display_name, EXCLUDED.owner_profile_image, EXCLUDED.owner_link)
+            """;
+
+    private static final String MERGE_ANSWER = """
+            INSERT INTO answers (
+                id, question_id, body, accepted, score, creation_date, last_activity_date,
+                owner_reputation, owner_user_id, owner_display_name, owner_profile_image, owner_link)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET
+                body = EXCLUDED.body, accepted = EXCLUDED.accepted, score = EXCLUDED.score,
+                creation_date = EXCLUDED.creation_date, last_activity_date = EXCLUDED.last_activity_date,
+                owner_reputation = EXCLUDED.owner_reputation, owner_user_id = EXCLUDED.owner_user_id,
+                owner_display_name = EXCLUDED.owner_display_name,
+                owner_profile_image = EXCLUDED.owner_profile_image, owner_link = EXCLUDED.owner_link
+            WHERE (answers.body, answers.accepted, answers.score, answers.creation_date,
+                   answers.last_activity_date, answers.owner_reputation, answers.owner_user_id,
+                   answers.owner_display_name, answers.owner_profile_image, answers.owner_link)
+                IS DISTINCT FROM
+                  (EXCLUDED.body, EXCLUDED.accepted, EXCLUDED.score, EXCLUDED.creation_date,
+                   EXCLUDED.last_activity_date, EXCLUDED.owner_reputation, EXCLUDED.owner_user_id,
+                   EXCLUDED.owner_display_name, EXCLUDED.owner_profile_image, EXCLUDED.owner_link)
+            """;
+
+    private static final String MERGE_QUESTION_COMMENT = """
+            INSERT INTO question_comments (
+                id, question_id, body, score, creation_date,
+                owner_user_id, owner_reputation, owner_display_name, owner_profile_image, owner_link)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET
+                body = EXCLUDED.body, score = EXCLUDED.score, creation_date = EXCLUDED.creation_date,
+                owner_user_id = EXCLUDED.owner_user_id, owner_reputation = EXCLUDED.owner_reputation,
+                owner_display_name = EXCLUDED.owner_display_name,
+                owner_profile_image = EXCLUDED.owner_profile_image, owner_link = EXCLUDED.owner_link
+            WHERE (question_comments.body, question_comments.score, question_comments.creation_date,
+                   question_comments.owner_user_id, question_comments.owner_reputation,
+                   question_comments.owner_display_name, question_comments.owner_profile_image,
+                   question_comments.owner_link)
+                IS DISTINCT FROM
+                  (EXCLUDED.body, EXCLUDED.score, EXCLUDED.creation_date, EXCLUDED.owner_user_id,
+                   EXCLUDED.owner_reputation, EXCLUDED.owner_display_name, EXCLUDED.owner_profile_image,
+                   EXCLUDED.owner_link)
+            """;
+
+    private static final String MERGE_ANSWER_COMMENT = """
+            INSERT INTO answer_comments (
+                id, answer_id, body, score, creation_date,
+                owner_user_id, owner_reputation, owner_display_name, owner_profile_image, owner_link)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE SET
+                body = EXCLUDED.body, score = EXCLUDED.score, creation_date = EXCLUDED.creation_date,
+                owner_user_id = EXCLUDED.owner_user_id, owner_reputation = EXCLUDED.owner_reputation,
+                owner_display_name = EXCLUDED.owner_display_name,
+                owner_profile_image = EXCLUDED.owner_profile_image, owner_link = EXCLUDED.owner_link
+            WHERE (answer_comments.body, answer_comments.score, answer_comments.creation_date,
+                   answer_comments.owner_user_id, answer_comments.owner_reputation,
+                   answer_comments.owner_display_name, answer_comments.owner_profile_image,
+                   answer_comments.owner_link)
+                IS DISTINCT FROM
+                  (EXCLUDED.body, EXCLUDED.score, EXCLUDED.creation_date, EXCLUDED.owner_user_id,
+                   EXCLUDED.owner_reputation, EXCLUDED.owner_display_name, EXCLUDED.owner_profile_image,
+                   EXCLUDED.owner_link)
+            """;
+
+    private static final String DELETE_STALE_ANSWER_COMMENTS = """
+            DELETE FROM answer_comments c
+            USING answers a
+            WHERE c.answer_id = a.id AND a.question_id = ANY(?) AND NOT (c.id = ANY(?))
+            """;
+
+    private static final String DELETE_STALE_ANSWERS =
+            "DELETE FROM answers WHERE question_id = ANY(?) AND NOT (id = ANY(?))";
+
+    private static final String DELETE_STALE_QUESTION_COMMENTS =
+            "DELETE FROM question_comments WHERE question_id = ANY(?) AND NOT (id = ANY(?))";
+
+    private static final String DELETE_STALE_QUESTION_TAGS = """
+            DELETE FROM question_tags qt
+            WHERE qt.question_id = ANY(?)
+              AND NOT EXISTS (
+                  SELECT 1 FROM unnest(?::bigint[], ?::bigint[]) AS keep(question_id, tag_id)
+                  WHERE keep.question_id = qt.question_id AND keep.tag_id = qt.tag_id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TagDictionaryService tagDictionary;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void writeBatch(List<MappedThread> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Rows rows = collect(batch);
+        transactionTemplate.executeWithoutResult(status -> {
+            batchInsert(INSERT_QUESTION, rows.questions(), this::bindQuestion);
+            batchInsert(INSERT_ANSWER, rows.answers(), this::bindAnswer);
+            batchInsert(INSERT_QUESTION_COMMENT, rows.questionComments(), this::bindQuestionComment);
+            batchInsert(INSERT_ANSWER_COMMENT, rows.answerComments(), this::bindAnswerComment);
+            batchInsert(INSERT_QUESTION_TAG, rows.questionTags(), this::bindQuestionTag);
+        });
+    }
+
+    /**
+     * 先刪除重新採集中已消失的子記錄，再以 {@code ON CONFLICT DO UPDATE ... WHERE ... IS DISTINCT FROM}
+     * upsert 各表；欄位完全相同的列不會產生新的列版本。
+     */
+    @Override
+    public void mergeBatch(List<MappedThread> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Rows rows = collect(batch);
+        Long[] questionIds = rows.questions().stream().map(Question::getId).toArray(Long[]::new);
+        transactionTemplate.executeWithoutResult(status -> {
+            deleteStale(DELETE_STALE_ANSWER_COMMENTS, questionIds,
+                    rows.answerComments().stream().map(AnswerComment::getId).toArray(Long[]::new));
+            deleteStale(DELETE_STALE_ANSWERS, questionIds,
+                    rows.answers().stream().map(Answer::getId).toArray(Long[]::new));
+            deleteStale(DELETE_STALE_QUESTION_COMMENTS, questionIds,
+                    rows.questionComments().stream().map(QuestionComment::getId).toArray(Long[]::new));
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(DELETE_STALE_QUESTION_TAGS);
+                statement.setArray(1, connection.createArrayOf("bigint", questionIds));
+                statement.setArray(2, connection.createArrayOf("bigint",
+                        rows.questionTags().stream().map(pair -> pair[0]).toArray(Long[]::new)));
+                statement.setArray(3, connection.createArrayOf("bigint",
+                        rows.questionTags().stream().map(pair -> pair[1]).toArray(Long[]::new)));
+                return statement;
+            });
+
+            batchInsert(MERGE_QUESTION, rows.questions(), this::bindQuestion);
+            batchInsert(MERGE_ANSWER, rows.answers(), this::bindAnswer);
+            batchInsert(MERGE_QUESTION_COMMENT, rows.questionComments(), this::bindQuestionComment);
+            batchInsert(MERGE_ANSWER_COMMENT, rows.answerComments(), this::bindAnswerComment);
+            batchInsert(INSERT_QUESTION_TAG, rows.questionTags(), this::bindQuestionTag);
+        });
+    }
+
+    private Rows collect(List<MappedThread> batch) {
+        Map<String, Long> tagIds = tagDictionary.resolveIds(distinctTagNames(batch));
+        Rows rows = new Rows(new ArrayList<>(batch.size()), new ArrayList<>(), new ArrayList<>(),
+                new ArrayList<>(), new ArrayList<>());
+        for (MappedThread thread : batch) {
+            Question question = thread.question();
+            rows.questions().add(question);
+            rows.questionComments().addAll(question.getQuestionComments());
+            for (Answer answer : question.getAnswers()) {
+                rows.answers().add(answer);
+                rows.answerComments().addAll(answer.getComments());
+            }
+            for (String tagName : thread.tagNames()) {
+                Long tagId = tagIds.get(tagName);
+                Tag tag = new Tag(tagName);
+                tag.setId(tagId);
+                question.getTags().add(tag);
+                rows.questionTags().add(new long[] { question.getId(), tagId });
+            }
+        }
+        return rows;
+    }
+
+    private void deleteStale(String sql, Long[] questionIds, Long[] keepIds) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("bigint", questionIds));
+            statement.setArray(2, connection.createArrayOf("bigint", keepIds));
+            return statement;
+        });
+    }
+
+    private <T> void batchInsert(String sql, List<T> rows, ParameterizedPreparedStatementSetter<T> setter) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows, rows.size(), setter);
+        }
+    }
+
+    private void bindQuestionTag(PreparedStatement ps, long[] pair) throws SQLException {
+        ps.setLong(1, pair[0]);
+        ps.setLong(2, pair[1]);
+    }
+
+    private void bindQuestion(PreparedStatement ps, Question question) throws SQLException {
+        ps.setLong(1, question.getId());
+        ps.setString(2, question.getTitle());
+        ps.setString(3, question.getBody());
+        ps.setObject(4, question.getAnswered(), Types.BOOLEAN);
+        ps.setObject(5, question.getViewCount(), Types.INTEGER);
+        ps.setObject(6, question.getAnswerCount(), Types.INTEGER);
+        ps.setObject(7, question.getScore(), Types.INTEGER);
+        ps.setString(8, question.getQuestionLink());
+        setInstant(ps, 9, question.getCreationDate());
+        setInstant(ps, 10, question.getLastActivityDate());
+        setInstant(ps, 11, question.getClosedDate());
+        ps.setString(12, question.getClosedReason());
+        ps.setObject(13, question.getAcceptedAnswerId(), Types.BIGINT);
+        ps.setObject(14, question.getOwnerReputation(), Types.INTEGER);
+        ps.setObject(15, question.getOwnerUserId(), Types.BIGINT);
+        ps.setString(16, question.getOwnerDisplayName());
+        ps.setString(17, question.getOwnerProfileImage());
+        ps.setString(18, question.getOwnerLink());
+    }
+
+    private void bindAnswer(PreparedStatement ps, Answer answer) throws SQLException {
+        ps.setLong(1, answer.getId());
+        ps.setLong(2, answer.getQuestion().getId());
+        ps.setString(3, answer.getBody());
+        ps.setObject(4, answer.getAccepted(), Types.BOOLEAN);
+        ps.setObject(5, answer.getScore(), Types.INTEGER);
+        setInstant(ps, 6, answer.getCreationDate());
+        setInstant(ps, 7, answer.getLastActivityDate());
+        ps.setObject(8, answer.getOwnerReputation(), Types.INTEGER);
+        ps.setObject(9, answer.getOwnerUserId(), Types.BIGINT);
+        ps.setString(10, answer.getOwnerDisplayName());
+        ps.setString(11, answer.getOwnerProfileImage());
+        ps.setString(12, answer.getOwnerLink());
+    }
+
+    private void bindQuestionComment(PreparedStatement ps, QuestionComment comment) throws SQLException {
+        ps.setLong(1, comment.getId());
+        ps.setLong(2, comment.getQuestion().getId());
+        ps.setString(3, comment.getBody());
+        ps.setObject(4, comment.getScore(), Types.INTEGER);
+        setInstant(ps, 5, comment.getCreationDate());
+        ps.setObject(6, comment.getOwnerUserId(), Types.BIGINT);
+        ps.setObject(7, comment.getOwnerReputation(), Types.INTEGER);
+        ps.setString(8, comment.getOwnerDisplayName());
+        ps.setString(9, comment.getOwnerProfileImage());
+        ps.setString(10, comment.getOwnerLink());
+    }
+
+    private void bindAnswerComment(PreparedStatement ps, AnswerComment comment) throws SQLException {
+        ps.setLong(1, comment.getId());
+        ps.setLong(2, comment.getAnswer().getId());
+        ps.setString(3, comment.getBody());
+        ps.setObject(4, comment.getScore(), Types.INTEGER);
+        setInstant(ps, 5, comment.getCreationDate());
+        ps.setObject(6, comment.getOwnerUserId(), Types.BIGINT);
+        ps.setObject(7, comment.getOwnerReputation(), Types.INTEGER);
+        ps.setString(8, comment.getOwnerDisplayName());
+        ps.setString(9, comment.getOwnerProfileImage());
+        ps.setString(10, comment.getOwnerLink());
+    }
+
+    private record Rows(
+            List<Question> questions,
+            List<Answer> answers,
+            List<QuestionComment> questionComments,
+            List<AnswerComment> answerComments,
+            List<long[]> questionTags) {
+    }
+
+    private void setInstant(PreparedStatement ps, int index, Instant value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP_WITH_TIMEZONE);
+        } else {
+            ps.setObject(index, value.atOffset(ZoneOffset.UTC));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.importer.StackOverflowThreadMapper.MappedThread;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.repository.QuestionRepository;
+import cs209a.finalproject_demo.repository.TagRepository;
+import cs209a.finalproject_demo.service.TagDictionaryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 透過 JPA cascade 逐筆保存整個線程，Hibernate 會把同類 INSERT 合併成 JDBC 批次。
+ * 標籤以字典中的 ID 取得參照，不再逐一查詢。
+ */
+@Component
+@ConditionalOnProperty(name = "app.data.write-mode", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaThreadBatchWriter implements ThreadBatchWriter {
+
+    private final QuestionRepository questionRepository;
+    private final TagRepository tagRepository;
+    private final TagDictionaryService tagDictionary;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void writeBatch(List<MappedThread> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<String, Long> tagIds = tagDictionary.resolveIds(distinctTagNames(batch));
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Question> questions = new ArrayList<>(batch.size());
+            for (MappedThread thread : batch) {
+                Question question = thread.question();
+                for (String tagName : thread.tagNames()) {
+                    question.getTags().add(tagRepository.getReferenceById(tagIds.get(tagName)));
+                }
+                questions.add(question);
+            }
+            // 立即送出 SQL，讓同一交易中以 JDBC 維護彙總表的監聽器讀得到這批資料
+            questionRepository.saveAllAndFlush(questions);
+        });
+    }
+
+    /**
+     * {@code saveAll} 對已有 ID 的實體走 {@code merge}：Hibernate 載入既有實體後只對欄位有變化的列發出 UPDATE，
+     * 並依 {@code orphanRemoval} 刪除重新採集中已消失的回答與留言。
+     */
+    @Override
+    public void mergeBatch(List<MappedThread> batch) {
+        writeBatch(batch);
+    }
+}
@@ -0,0 +1,119 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.util.LongBitmap;
+import cs209a.finalproject_demo.util.LongLongHashMap;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+
+/**
+ * 已存在 Question ID 的記憶體索引，首次使用時以一次串流查詢載入，之後由匯入流程維護，
+ * 取代逐筆 {@code existsById}。
+ * <p>
+ * {@link #tryClaim} 先把 ID 標記為處理中，批次提交後以 {@link #markCommitted} 轉正，
+ * 提交失敗則以 {@link #release} 釋放，讓同一次匯入中重複出現的 ID 只會被寫入一次。
+ * <p>
+ * 合併模式下另外載入每個 Question 的 {@code last_activity_date}（epoch 秒），
+ * 供 {@link #tryClaimChanged} 判斷重新採集的線程是否有變動。
+ */
+@Component
+@RequiredArgsConstructor
+public class QuestionIdIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionIdIndex.class);
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final long NO_ACTIVITY = Long.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final LongBitmap committed = new LongBitmap();
+    private final LongBitmap pending = new LongBitmap();
+    private final LongLongHashMap lastActivity = new LongLongHashMap();
+    private boolean loaded;
+    private boolean activityLoaded;
+
+    public synchronized void ensureLoaded(boolean withActivity) {
+        if (loaded && (activityLoaded || !withActivity)) {
+            return;
+        }
+        long start = System.nanoTime();
+        String sql = withActivity ? "SELECT id, last_activity_date FROM questions" : "SELECT id FROM questions";
+        // PostgreSQL 只有在交易內才會依 fetch size 以游標分段取回
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            long id = rs.getLong(1);
+            committed.add(id);
+            if (withActivity) {
+                OffsetDateTime activity = rs.getObject(2, OffsetDateTime.class);
+                lastActivity.put(id, activity == null ? NO_ACTIVITY : activity.toEpochSecond());
+            }
+        }));
+        loaded = true;
+        activityLoaded |= withActivity;
+        log.info("已載入 {} 筆既有 Question ID{}，耗時 {} ms。",
+                committed.size(), withActivity ? "與最後活動時間" : "", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public synchronized boolean contains(long questionId) {
+        return committed.contains(questionId);
+    }
+
+    /**
+     * @return 若 ID 既未提交也未被其他執行緒佔用則回傳 {@code true}
+     */
+    public synchronized boolean tryClaim(long questionId) {
+        if (committed.contains(questionId) || pending.contains(questionId)) {
+            return false;
+        }
+        pending.add(questionId);
+        return true;
+    }
+
+    /**
+     * 已存在的 ID 若重新採集到較新的 {@code lastActivityEpochSecond}，則佔用它以便合併更新。
+     * 需先以 {@code ensureLoaded(true)} 載入最後活動時間。
+     */
+    public synchronized boolean tryClaimChanged(long questionId, Long lastActivityEpochSecond) {
+        if (lastActivityEpochSecond == null || !committed.contains(questionId) || pending.contains(questionId)) {
+            return false;
+        }
+        long stored = lastActivity.get(questionId, NO_ACTIVITY);
+        if (stored != NO_ACTIVITY && lastActivityEpochSecond <= stored) {
+            return false;
+        }
+        pending.add(questionId);
+        return true;
+    }
+
+    public synchronized void markCommitted(Collection<Question> questions) {
+        for (Question question : questions) {
+            long id = question.getId();
+            pending.remove(id);
+            committed.add(id);
+            if (activityLoaded) {
+                lastActivity.put(id, question.getLastActivityDate() == null
+                        ? NO_ACTIVITY
+                        : question.getLastActivityDate().getEpochSecond());
+            }
+        }
+    }
+
+    public synchronized void release(Collection<Long> questionIds) {
+        for (Long id : questionIds) {
+            pending.remove(id);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.importer.StackOverflowThreadMapper.MappedThread;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * 一個匯入批次寫入的線程，在批次交易內發布。{@code inserted} 是新增的線程，
+ * {@code updated} 是合併模式下內容有變動、已覆寫的既有線程。
+ * <p>
+ * 以 {@code @EventListener} 接收的監聽器在同一交易中執行，適合增量維護預先計算的彙總表，
+ * 失敗時會連同資料一起回滾；只需在資料可見後刷新快取的監聽器則應使用
+ * {@code @TransactionalEventListener}（預設於提交後觸發）。
+ */
+public record QuestionsImportedEvent(List<MappedThread> inserted, List<MappedThread> updated) {
+
+    public List<MappedThread> threads() {
+        return Stream.concat(inserted.stream(), updated.stream()).toList();
+    }
+
+    public List<Long> questionIds() {
+        return threads().stream().map(thread -> thread.question().getId()).toList();
+    }
+
+    public Set<String> tagNames() {
+        Set<String> names = new LinkedHashSet<>();
+        threads().forEach(thread -> names.addAll(thread.tagNames()));
+        return names;
+    }
+}
@@ -0,0 +1,17 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.importer.StackOverflowThreadMapper.MappedThread;
+
+import java.util.List;
+
+/**
+ * 合併模式下，批次交易在覆寫既有線程<em>之前</em>發布，此時資料庫中仍是舊內容。
+ * 需要扣除舊值的增量彙總（例如依建立月份與標籤累計的計數）在這裡減去舊的貢獻，
+ * 再於隨後的 {@link QuestionsImportedEvent} 中加回新的貢獻。
+ */
+public record QuestionsMergingEvent(List<MappedThread> updated) {
+
+    public List<Long> questionIds() {
+        return updated.stream().map(thread -> thread.question().getId()).toList();
+    }
+}
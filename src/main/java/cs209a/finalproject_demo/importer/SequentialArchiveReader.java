@@ -0,0 +1,78 @@
+package cs209a.finalproject_demo.importer;
+
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 以單一執行緒順序讀取：zip 以 {@link ZipInputStream} 逐個 entry 解壓，其他檔案視為序號 0 的單一 entry。
+ * 不依賴中央目錄，適用於串流輸入或尚未寫完的檔案。
+ */
+@Component
+public class SequentialArchiveReader implements ArchiveReader {
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    @Override
+    public void read(Path source, long firstEntry, AtomicLong bytesRead, EntryHandler handler)
+            throws IOException, InterruptedException {
+        if (!isZip(source)) {
+            try (InputStream input = openCounted(source, bytesRead)) {
+                handler.beforeEntry(0);
+                handler.readEntry(0, source.getFileName().toString(), input);
+            }
+            return;
+        }
+        try (ZipInputStream zis = new ZipInputStream(openCounted(source, bytesRead))) {
+            ZipEntry entry;
+            long entryIndex = -1;
+            while (handler.shouldContinue() && (entry = zis.getNextEntry()) != null) {
+                entryIndex++;
+                if (entryIndex < firstEntry
+                        || entry.isDirectory()
+                        || !ThreadStreamParser.isThreadFile(entry.getName())) {
+                    continue;
+                }
+                handler.beforeEntry(entryIndex);
+                handler.readEntry(entryIndex, entry.getName(), zis);
+                zis.closeEntry();
+            }
+        }
+    }
+
+    static boolean isZip(Path source) {
+        return source.getFileName().toString().toLowerCase(Locale.ENGLISH).endsWith(".zip");
+    }
+
+    private static InputStream openCounted(Path path, AtomicLong bytesRead) throws IOException {
+        InputStream counted = new FilterInputStream(Files.newInputStream(path)) {
+            @Override
+            public int read() throws IOException {
+                int value = super.read();
+                if (value >= 0) {
+                    bytesRead.incrementAndGet();
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int count = super.read(buffer, offset, length);
+                if (count > 0) {
+                    bytesRead.addAndGet(count);
+                }
+                return count;
+            }
+        };
+        return new BufferedInputStream(counted, READ_BUFFER_BYTES);
+    }
+}
@@ -0,0 +1,87 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.service.dto.ImportStatusResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 在背景執行緒執行匯入，讓應用啟動不必等待整個壓縮檔載入完成。
+ * 同一時間只允許一個匯入工作；進度透過 {@link #status()} 對外提供。
+ */
+@Component
+@RequiredArgsConstructor
+public class StackOverflowImportJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StackOverflowImportJob.class);
+
+    private final StackOverflowThreadImporter threadImporter;
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(StackOverflowThreadImporter.namedThreads("so-import-job-"));
+
+    private volatile ImportProgress current = ImportProgress.idle();
+    private volatile ImportProgress initialLoad;
+
+    /**
+     * @return 若已有匯入在進行則回傳 {@code false}
+     */
+    public synchronized boolean submit(Path source, long target) {
+        if (current.isActive()) {
+            return false;
+        }
+        ImportProgress progress = new ImportProgress(source.toString(), target);
+        current = progress;
+        executor.execute(() -> run(source, progress));
+        return true;
+    }
+
+    /**
+     * 提交啟動時的初始載入。與執行期間（例如投遞目錄）提交的匯入不同，
+     * 只有這一次會讓 {@link #isInitialLoadActive()} 為 {@code true}。
+     */
+    public synchronized boolean submitInitialLoad(Path source, long target) {
+        if (!submit(source, target)) {
+            return false;
+        }
+        initialLoad = current;
+        return true;
+    }
+
+    public boolean isActive() {
+        return current.isActive();
+    }
+
+    /**
+     * @return 啟動時的初始載入是否仍在進行；執行期間的匯入不影響此值
+     */
+    public boolean isInitialLoadActive() {
+        ImportProgress progress = initialLoad;
+        return progress != null && progress.isActive();
+    }
+
+    public ImportStatusResponse status() {
+        return current.snapshot();
+    }
+
+    private void run(Path source, ImportProgress progress) {
+        try {
+            ImportResult result = threadImporter.importArchive(source, progress);
+            log.info("匯入完成，共新增 {} 筆、更新 {} 筆 Question；掃描 {} 筆，略過 {} 筆，失敗 {} 筆，耗時 {} 秒（{} threads/s）。",
+                    result.imported(), result.updated(), result.scanned(), result.skipped(), result.failed(),
+                    result.elapsed().toSeconds(), String.format("%.1f", result.throughput()));
+        } catch (RuntimeException e) {
+            log.error("匯入 {} 失敗", source, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
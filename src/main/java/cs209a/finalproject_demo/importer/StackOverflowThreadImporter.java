@@ -0,0 +1,479 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.dto.QuestionDto;
+import cs209a.finalproject_demo.dto.StackOverflowThreadDto;
+import cs209a.finalproject_demo.importer.StackOverflowThreadMapper.MappedThread;
+import cs209a.finalproject_demo.model.ImportCheckpoint;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 三段式匯入管線：{@link ArchiveReader} 解壓並以串流方式解析線程，worker 池負責去重與實體映射，
+ * 單一 writer 以批次交易寫入。各階段之間以有界佇列銜接，讀取速度受下游背壓限制。
+ * zip 壓縮檔預設由 {@link ZipFileArchiveReader} 多執行緒並行解壓，其餘輸入走 {@link SequentialArchiveReader}。
+ * <p>
+ * 每個批次與其檢查點在同一交易中提交，並在交易內發布 {@link QuestionsImportedEvent} 供分析層增量更新；
+ * 合併模式覆寫既有線程前另發布 {@link QuestionsMergingEvent}。
+ * 重新啟動時依來源指紋找回檢查點，已提交的 entry 不再解析，所在 entry 則直接跳到最後提交記錄之後的位置。
+ */
+@Component
+@RequiredArgsConstructor
+public class StackOverflowThreadImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(StackOverflowThreadImporter.class);
+
+    private static final long POLL_TIMEOUT_MILLIS = 200;
+    private static final int PROGRESS_LOG_BATCHES = 10;
+
+    private final ThreadStreamParser streamParser;
+    private final SequentialArchiveReader sequentialReader;
+    private final ZipFileArchiveReader zipFileReader;
+    private final QuestionIdIndex questionIdIndex;
+    private final StackOverflowThreadMapper threadMapper;
+    private final ThreadBatchWriter threadWriter;
+    private final ImportCheckpointService checkpointService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.data.archive-reader:parallel}")
+    private String archiveReader;
+
+    @Value("${app.data.import-mode:insert}")
+    private String importMode;
+
+    @Value("${app.data.import-workers:0}")
+    private int workerCount;
+
+    @Value("${app.data.import-batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.data.import-queue-capacity:512}")
+    private int queueCapacity;
+
+    /**
+     * 匯入 zip 壓縮檔或單一 JSON / NDJSON 檔案內的線程。{@code target <= 0} 表示不設上限。
+     */
+    public ImportResult importArchive(Path source, long target) {
+        return importArchive(source, new ImportProgress(source.toString(), target));
+    }
+
+    /**
+     * 同上，並把即時進度寫入 {@code progress}，供背景工作對外回報。
+     */
+    public ImportResult importArchive(Path source, ImportProgress progress) {
+        int workers = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        boolean merge = "merge".equalsIgnoreCase(importMode);
+        return new ImportRun(progress, workers, Math.max(1, batchSize), Math.max(1, queueCapacity), merge)
+                .execute(source);
+    }
+
+    /**
+     * 帶序號的管線項目，序號用於推進 {@link ImportWatermark}；{@code existing} 表示合併模式下要更新的既有線程。
+     */
+    private record Sequenced<T>(ImportWatermark.Ticket ticket, T value, boolean existing) {
+
+        private Sequenced(ImportWatermark.Ticket ticket, T value) {
+            this(ticket, value, false);
+        }
+    }
+
+    private static final Sequenced<StackOverflowThreadDto> END_OF_ENTRIES = new Sequenced<>(null, null);
+
+    private static final Sequenced<MappedThread> END_OF_THREADS = new Sequenced<>(null, null);
+
+    private ArchiveReader readerFor(Path source) {
+        if (SequentialArchiveReader.isZip(source) && !"sequential".equalsIgnoreCase(archiveReader)) {
+            return zipFileReader;
+        }
+        return sequentialReader;
+    }
+
+    private final class ImportRun {
+
+        private final ImportProgress progress;
+        private final long target;
+        private final int workers;
+        private final int batchLimit;
+        private final BlockingQueue<Sequenced<StackOverflowThreadDto>> threadQueue;
+        private final BlockingQueue<Sequenced<MappedThread>> mappedQueue;
+        private final ImportWatermark watermark = new ImportWatermark();
+        private final AtomicInteger activeWorkers;
+        private final AtomicBoolean targetReached = new AtomicBoolean();
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicLong scanned;
+        private final AtomicLong skipped;
+        private final AtomicLong failed;
+        private final AtomicLong imported;
+        private final AtomicLong updated;
+        private final boolean merge;
+        private String fingerprint;
+        private long resumeEntry = -1;
+        private long resumeOffset;
+
+        private ImportRun(ImportProgress progress, int workers, int batchLimit, int capacity, boolean merge) {
+            this.progress = progress;
+            this.target = progress.target();
+            this.scanned = progress.scanned();
+            this.skipped = progress.skipped();
+            this.failed = progress.failed();
+            this.imported = progress.imported();
+            this.updated = progress.updated();
+            this.merge = merge;
+            this.workers = workers;
+            this.batchLimit = batchLimit;
+            this.threadQueue = new ArrayBlockingQueue<>(capacity);
+            this.mappedQueue = new ArrayBlockingQueue<>(capacity);
+            this.activeWorkers = new AtomicInteger(workers);
+        }
+
+        private ImportResult execute(Path source) {
+            progress.start(sizeOf(source));
+            try {
+                if (!prepareCheckpoint(source)) {
+                    progress.complete();
+                    return new ImportResult(0, 0, 0, 0, 0, Duration.ZERO);
+                }
+            } catch (IOException | RuntimeException e) {
+                progress.fail(e);
+                throw new RuntimeException("匯入 Stack Overflow 資料失敗", e);
+            }
+            ExecutorService workerPool = Executors.newFixedThreadPool(workers, namedThreads("so-import-worker-"));
+            ExecutorService writerPool = Executors.newSingleThreadExecutor(namedThreads("so-import-writer-"));
+            try {
+                questionIdIndex.ensureLoaded(merge);
+                for (int i = 0; i < workers; i++) {
+                    workerPool.execute(this::runWorker);
+                }
+                Future<?> writer = writerPool.submit(this::runWriter);
+                readSource(source);
+                writer.get();
+                if (!aborted.get() && !targetReached.get()) {
+                    checkpointService.markCompleted(fingerprint, source.toString());
+                }
+            } catch (IOException e) {
+                abort(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(e);
+            } catch (ExecutionException e) {
+                abort(e.getCause());
+            } catch (RuntimeException e) {
+                abort(e);
+            } finally {
+                workerPool.shutdownNow();
+                writerPool.shutdownNow();
+                releaseUnwritten();
+            }
+
+            if (failure.get() != null) {
+                progress.fail(failure.get());
+                throw new RuntimeException("匯入 Stack Overflow 資料失敗", failure.get());
+            }
+            progress.complete();
+            return new ImportResult(
+                    scanned.get(),
+                    imported.get(),
+                    updated.get(),
+                    skipped.get(),
+                    failed.get(),
+                    Duration.ofNanos(Math.round(progress.elapsedSeconds() * 1_000_000_000L)));
+        }
+
+        /**
+         * @return {@code false} 表示此來源先前已完整匯入，無需再讀
+         */
+        private boolean prepareCheckpoint(Path source) throws IOException {
+            fingerprint = checkpointService.fingerprint(source);
+            ImportCheckpoint checkpoint = checkpointService.find(fingerprint).orElse(null);
+            if (checkpoint == null) {
+                return true;
+            }
+            if (checkpoint.isCompleted()) {
+                log.info("{} 已於 {} 完整匯入，略過。", source, checkpoint.getUpdatedAt());
+                return false;
+            }
+            resumeEntry = checkpoint.getEntryIndex();
+            resumeOffset = checkpoint.getEntryOffset();
+            if (resumeEntry >= 0) {
+                log.info("從檢查點續傳 {}：第 {} 個 entry 的位移 {}，先前已提交 {} 個批次、{} 筆。",
+                        source, resumeEntry, resumeOffset, checkpoint.getCommittedBatches(), checkpoint.getImportedCount());
+            }
+            return true;
+        }
+
+        private void readSource(Path source) throws IOException, InterruptedException {
+            try {
+                readerFor(source).read(source, resumeEntry, progress.bytesRead(), new ArchiveReader.EntryHandler() {
+                    @Override
+                    public boolean shouldContinue() {
+                        return !targetReached.get() && !aborted.get();
+                    }
+
+                    @Override
+                    public void beforeEntry(long entryIndex) {
+                        watermark.openEntry(entryIndex, entryIndex == resumeEntry ? resumeOffset : 0);
+                    }
+
+                    @Override
+                    public void readEntry(long entryIndex, String name, InputStream input)
+                            throws IOException, InterruptedException {
+                        parseEntry(input, entryIndex, name);
+                    }
+                });
+            } finally {
+                for (int i = 0; i < workers; i++) {
+                    if (!offer(threadQueue, END_OF_ENTRIES)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void parseEntry(InputStream input, long entryIndex, String name)
+                throws IOException, InterruptedException {
+            long baseOffset = 0;
+            if (entryIndex == resumeEntry && resumeOffset > 0) {
+                input.skipNBytes(resumeOffset);
+                baseOffset = resumeOffset;
+            }
+            failed.addAndGet(streamParser.parse(input, name, baseOffset,
+                    (thread, endOffset) -> enqueue(thread, entryIndex, endOffset)));
+            if (!targetReached.get() && !aborted.get()) {
+                watermark.finishEntry(entryIndex);
+            }
+        }
+
+        private boolean enqueue(StackOverflowThreadDto thread, long entryIndex, long endOffset)
+                throws InterruptedException {
+            if (targetReached.get()) {
+                return false;
+            }
+            scanned.incrementAndGet();
+            return offer(threadQueue, new Sequenced<>(watermark.register(entryIndex, endOffset), thread));
+        }
+
+        private void runWorker() {
+            try {
+                Sequenced<StackOverflowThreadDto> thread;
+                while ((thread = poll(threadQueue)) != null && thread != END_OF_ENTRIES) {
+                    if (targetReached.get()) {
+                        continue;
+                    }
+                    Sequenced<MappedThread> mapped = process(thread);
+                    if (mapped == null) {
+                        watermark.complete(thread.ticket());
+                    } else if (!offer(mappedQueue, mapped)) {
+                        release(List.of(mapped));
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                abort(e);
+            } finally {
+                if (activeWorkers.decrementAndGet() == 0) {
+                    signalEndOfThreads();
+                }
+            }
+        }
+
+        private Sequenced<MappedThread> process(Sequenced<StackOverflowThreadDto> item) {
+            QuestionDto question = item.value().question();
+            if (question == null || question.questionId() == null) {
+                skipped.incrementAndGet();
+                return null;
+            }
+            Long questionId = question.questionId();
+            if (questionIdIndex.tryClaim(questionId)) {
+                return new Sequenced<>(item.ticket(), threadMapper.map(item.value()), false);
+            }
+            // 合併模式：既有線程只有在 last_activity_date 前進時才重新寫入
+            if (merge && questionIdIndex.tryClaimChanged(questionId, question.lastActivityDate())) {
+                return new Sequenced<>(item.ticket(), threadMapper.map(item.value()), true);
+            }
+            skipped.incrementAndGet();
+            return null;
+        }
+
+        private void signalEndOfThreads() {
+            try {
+                offer(mappedQueue, END_OF_THREADS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void runWriter() {
+            List<Sequenced<MappedThread>> batch = new ArrayList<>(batchLimit);
+            int flushedBatches = 0;
+            try {
+                Sequenced<MappedThread> mapped;
+                while ((mapped = poll(mappedQueue)) != null && mapped != END_OF_THREADS) {
+                    if (targetReached.get()) {
+                        release(List.of(mapped));
+                        continue;
+                    }
+                    batch.add(mapped);
+                    if (batch.size() >= batchLimit || batch.size() >= remaining()) {
+                        flush(batch);
+                        if (++flushedBatches % PROGRESS_LOG_BATCHES == 0) {
+                            logProgress();
+                        }
+                    }
+                }
+                if (!aborted.get()) {
+                    flush(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                abort(e);
+            } finally {
+                release(batch);
+            }
+        }
+
+        private void flush(List<Sequenced<MappedThread>> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            // 目標筆數只計算新增的線程，超出的部分留待下次匯入
+            long remaining = remaining();
+            List<Sequenced<MappedThread>> overflow = new ArrayList<>();
+            List<MappedThread> inserts = new ArrayList<>(batch.size());
+            List<MappedThread> updates = new ArrayList<>();
+            Set<ImportWatermark.Ticket> tickets = new HashSet<>(batch.size() * 2);
+            for (Sequenced<MappedThread> item : batch) {
+                if (item.existing()) {
+                    updates.add(item.value());
+                } else if (inserts.size() < remaining) {
+                    inserts.add(item.value());
+                } else {
+                    overflow.add(item);
+                    continue;
+                }
+                tickets.add(item.ticket());
+            }
+            release(overflow);
+            batch.removeAll(overflow);
+
+            // 資料與檢查點同交易提交；writer 內部的交易會加入這裡的外層交易
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!inserts.isEmpty()) {
+                    threadWriter.writeBatch(inserts);
+                }
+                if (!updates.isEmpty()) {
+                    eventPublisher.publishEvent(new QuestionsMergingEvent(updates));
+                    threadWriter.mergeBatch(updates);
+                }
+                eventPublisher.publishEvent(new QuestionsImportedEvent(inserts, updates));
+                checkpointService.recordBatch(fingerprint, progress.source(), batch.size(), watermark.previewWith(tickets));
+            });
+            questionIdIndex.markCommitted(batch.stream().map(item -> item.value().question()).toList());
+            watermark.complete(tickets);
+            updated.addAndGet(updates.size());
+            long total = imported.addAndGet(inserts.size());
+            batch.clear();
+            if (target > 0 && total >= target) {
+                targetReached.set(true);
+            }
+        }
+
+        private long remaining() {
+            return target > 0 ? target - imported.get() : Long.MAX_VALUE;
+        }
+
+        private void logProgress() {
+            log.info("匯入進度：已掃描 {} 筆，已寫入 {} 筆，更新 {} 筆，略過 {} 筆，失敗 {} 筆，{} threads/s。",
+                    scanned.get(), imported.get(), updated.get(), skipped.get(), failed.get(),
+                    String.format("%.1f", progress.ratePerSecond()));
+        }
+
+        private void release(List<Sequenced<MappedThread>> threads) {
+            if (!threads.isEmpty()) {
+                questionIdIndex.release(questionIds(threads));
+            }
+        }
+
+        private void releaseUnwritten() {
+            List<Sequenced<MappedThread>> leftovers = new ArrayList<>();
+            mappedQueue.drainTo(leftovers);
+            leftovers.removeIf(mapped -> mapped == END_OF_THREADS);
+            release(leftovers);
+        }
+
+        private List<Long> questionIds(List<Sequenced<MappedThread>> threads) {
+            return threads.stream().map(mapped -> mapped.value().question().getId()).toList();
+        }
+
+        private void abort(Throwable cause) {
+            failure.compareAndSet(null, cause);
+            aborted.set(true);
+        }
+
+        private <T> boolean offer(BlockingQueue<T> queue, T item) throws InterruptedException {
+            while (!aborted.get()) {
+                if (queue.offer(item, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private <T> T poll(BlockingQueue<T> queue) throws InterruptedException {
+            while (!aborted.get()) {
+                T item = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (item != null) {
+                    return item;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static long sizeOf(Path source) {
+        try {
+            return Files.size(source);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,199 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.dto.AnswerDto;
+import cs209a.finalproject_demo.dto.CommentDto;
+import cs209a.finalproject_demo.dto.OwnerDto;
+import cs209a.finalproject_demo.dto.QuestionDto;
+import cs209a.finalproject_demo.dto.StackOverflowThreadDto;
+import cs209a.finalproject_demo.model.Answer;
+import cs209a.finalproject_demo.model.AnswerComment;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.model.QuestionComment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 將 JSON 線程轉成實體圖；不接觸資料庫，可在多個 worker 執行緒間共用。
+ * 標籤只保留正規化後的名稱，交由寫入階段統一解析。
+ */
+@Component
+public class StackOverflowThreadMapper {
+
+    private static final Logger log = LoggerFactory.getLogger(StackOverflowThreadMapper.class);
+
+    public MappedThread map(StackOverflowThreadDto threadDto) {
+        if (threadDto == null || threadDto.question() == null || threadDto.question().questionId() == null) {
+            return null;
+        }
+        QuestionDto questionDto = threadDto.question();
+        Question question = mapQuestion(questionDto);
+
+        Map<Long, List<CommentDto>> answerCommentMap = normalizeAnswerComments(threadDto.answerComments());
+        if (threadDto.answers() != null) {
+            for (AnswerDto answerDto : threadDto.answers()) {
+                Answer answer = mapAnswer(answerDto, question);
+                if (answer == null) {
+                    continue;
+                }
+                List<CommentDto> relatedComments = answerCommentMap.getOrDefault(answer.getId(), List.of());
+                relatedComments.stream()
+                        .map(commentDto -> mapAnswerComment(commentDto, answer))
+                        .filter(Objects::nonNull)
+                        .forEach(answer.getComments()::add);
+                question.getAnswers().add(answer);
+            }
+        }
+
+        if (threadDto.questionComments() != null) {
+            threadDto.questionComments().stream()
+                    .map(commentDto -> mapQuestionComment(commentDto, question))
+                    .filter(Objects::nonNull)
+                    .forEach(question.getQuestionComments()::add);
+        }
+
+        return new MappedThread(question, normalizeTagNames(questionDto.tags()));
+    }
+
+    private Question mapQuestion(QuestionDto dto) {
+        Question question = new Question();
+        question.setId(dto.questionId());
+        question.setTitle(dto.title());
+        question.setBody(dto.body());
+        question.setAnswered(dto.isAnswered());
+        question.setViewCount(dto.viewCount());
+        question.setAnswerCount(dto.answerCount());
+        question.setScore(dto.score());
+        question.setQuestionLink(dto.link());
+        question.setCreationDate(toInstant(dto.creationDate()));
+        question.setLastActivityDate(toInstant(dto.lastActivityDate()));
+        question.setClosedDate(toInstant(dto.closedDate()));
+        question.setClosedReason(dto.closedReason());
+        question.setAcceptedAnswerId(dto.acceptedAnswerId());
+
+        OwnerDto owner = dto.owner();
+        if (owner != null) {
+            question.setOwnerUserId(owner.userId());
+            question.setOwnerReputation(owner.reputation());
+            question.setOwnerDisplayName(owner.displayName());
+            question.setOwnerProfileImage(owner.profileImage());
+            question.setOwnerLink(owner.link());
+        }
+        return question;
+    }
+
+    private List<String> normalizeTagNames(List<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return List.of();
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String tag : tags) {
+            if (tag != null && !tag.isBlank()) {
+                names.add(tag.toLowerCase(Locale.ENGLISH));
+            }
+        }
+        return List.copyOf(names);
+    }
+
+    private Answer mapAnswer(AnswerDto dto, Question question) {
+        if (dto == null || dto.answerId() == null) {
+            return null;
+        }
+        Answer answer = new Answer();
+        answer.setId(dto.answerId());
+        answer.setQuestion(question);
+        answer.setBody(dto.body());
+        answer.setAccepted(dto.accepted());
+        answer.setScore(dto.score());
+        answer.setCreationDate(toInstant(dto.creationDate()));
+        answer.setLastActivityDate(toInstant(dto.lastActivityDate()));
+
+        OwnerDto owner = dto.owner();
+        if (owner != null) {
+            answer.setOwnerUserId(owner.userId());
+            answer.setOwnerReputation(owner.reputation());
+            answer.setOwnerDisplayName(owner.displayName());
+            answer.setOwnerProfileImage(owner.profileImage());
+            answer.setOwnerLink(owner.link());
+        }
+        return answer;
+    }
+
+    private QuestionComment mapQuestionComment(CommentDto dto, Question question) {
+        if (dto == null || dto.commentId() == null) {
+            return null;
+        }
+        QuestionComment comment = new QuestionComment();
+        comment.setId(dto.commentId());
+        comment.setQuestion(question);
+        comment.setBody(dto.body());
+        comment.setScore(dto.score());
+        comment.setCreationDate(toInstant(dto.creationDate()));
+        OwnerDto owner = dto.owner();
+        if (owner != null) {
+            comment.setOwnerUserId(owner.userId());
+            comment.setOwnerReputation(owner.reputation());
+            comment.setOwnerDisplayName(owner.displayName());
+            comment.setOwnerProfileImage(owner.profileImage());
+            comment.setOwnerLink(owner.link());
+        }
+        return comment;
+    }
+
+    private AnswerComment mapAnswerComment(CommentDto dto, Answer answer) {
+        if (dto == null || dto.commentId() == null) {
+            return null;
+        }
+        AnswerComment comment = new AnswerComment();
+        comment.setId(dto.commentId());
+        comment.setAnswer(answer);
+        comment.setBody(dto.body());
+        comment.setScore(dto.score());
+        comment.setCreationDate(toInstant(dto.creationDate()));
+        OwnerDto owner = dto.owner();
+        if (owner != null) {
+            comment.setOwnerUserId(owner.userId());
+            comment.setOwnerReputation(owner.reputation());
+            comment.setOwnerDisplayName(owner.displayName());
+            comment.setOwnerProfileImage(owner.profileImage());
+            comment.setOwnerLink(owner.link());
+        }
+        return comment;
+    }
+
+    private Map<Long, List<CommentDto>> normalizeAnswerComments(Map<String, List<CommentDto>> raw) {
+        if (raw == null || raw.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<CommentDto>> normalized = new HashMap<>();
+        raw.forEach((key, value) -> {
+            try {
+                Long answerId = Long.valueOf(key);
+                normalized.put(answerId, value != null ? new ArrayList<>(value) : List.of());
+            } catch (NumberFormatException ignored) {
+                log.debug("無法解析 answer_comments 的 key：{}", key);
+            }
+        });
+        return normalized;
+    }
+
+    private Instant toInstant(Long epochSeconds) {
+        return epochSeconds == null ? null : Instant.ofEpochSecond(epochSeconds);
+    }
+
+    /**
+     * 映射結果：尚未綁定 Tag 實體的 Question，以及去重後的小寫標籤名稱。
+     */
+    public record MappedThread(Question question, List<String> tagNames) {
+    }
+}
@@ -0,0 +1,31 @@
+package cs209a.finalproject_demo.importer;
+
+import cs209a.finalproject_demo.importer.StackOverflowThreadMapper.MappedThread;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 匯入管線的寫入階段，由 {@code app.data.write-mode} 選擇實作。
+ * 只會被單一 writer 執行緒呼叫，每次呼叫對應一個交易。
+ * 返回前必須已把 SQL 送到資料庫，批次事件的監聽器會在同一交易中直接查詢基礎表。
+ */
+public interface ThreadBatchWriter {
+
+    void writeBatch(List<MappedThread> batch);
+
+    /**
+     * 合併模式：以 upsert 覆寫已存在的線程及其回答、留言與標籤，重新採集中已消失的子記錄會被刪除。
+     * 內容沒有變化的列不會被改寫。
+     */
+    void mergeBatch(List<MappedThread> batch);
+
+    default Set<String> distinctTagNames(List<MappedThread> batch) {
+        Set<String> names = new HashSet<>();
+        for (MappedThread thread : batch) {
+            names.addAll(thread.tagNames());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,83 @@
+package cs209a.finalproject_demo.importer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import cs209a.finalproject_demo.dto.StackOverflowThreadDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * 以 Jackson 串流解析器直接從輸入流逐筆讀出線程，不先把整個檔案複製到記憶體。
+ * 同一個流可以只有一個 JSON 物件（{@code thread_xx.json}），也可以是以換行分隔的多個物件（NDJSON），
+ * 記憶體用量只與單一線程的大小有關。
+ */
+@Component
+public class ThreadStreamParser {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadStreamParser.class);
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader threadReader;
+
+    public ThreadStreamParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.threadReader = objectMapper.readerFor(StackOverflowThreadDto.class);
+    }
+
+    public static boolean isThreadFile(String name) {
+        String lower = name.toLowerCase(Locale.ENGLISH);
+        return lower.endsWith(".json") || lower.endsWith(".ndjson") || lower.endsWith(".jsonl");
+    }
+
+    /**
+     * 逐筆解析 {@code input}，不會關閉輸入流。欄位型別錯誤的單筆記錄會被略過；
+     * JSON 語法錯誤則無法重新同步，該來源剩餘的內容會被放棄。
+     *
+     * @param baseOffset {@code input} 第一個位元組在來源中的位移，續傳時由呼叫端先跳過已提交的部分
+     * @return 解析失敗的記錄數
+     */
+    public int parse(InputStream input, String sourceName, long baseOffset, ThreadSink sink) throws InterruptedException {
+        int failed = 0;
+        try (JsonParser parser = objectMapper.createParser(input)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            MappingIterator<StackOverflowThreadDto> iterator = threadReader.readValues(parser);
+            while (true) {
+                StackOverflowThreadDto thread;
+                try {
+                    if (!iterator.hasNextValue()) {
+                        break;
+                    }
+                    thread = iterator.nextValue();
+                } catch (DatabindException e) {
+                    log.error("解析 {} 的第 {} 行失敗：{}", sourceName, parser.currentLocation().getLineNr(), e.getOriginalMessage());
+                    failed++;
+                    continue;
+                }
+                if (!sink.accept(thread, baseOffset + parser.currentLocation().getByteOffset())) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            log.error("解析 {} 失敗，略過其餘內容：{}", sourceName, e.getMessage());
+            failed++;
+        }
+        return failed;
+    }
+
+    @FunctionalInterface
+    public interface ThreadSink {
+        /**
+         * @param endOffset 該記錄結尾在來源中的位元組位移，可作為續傳位置
+         * @return {@code false} 表示停止讀取
+         */
+        boolean accept(StackOverflowThreadDto thread, long endOffset) throws InterruptedException;
+    }
+}
@@ -0,0 +1,143 @@
+package cs209a.finalproject_demo.importer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 依 zip 中央目錄隨機存取各個 entry，由多個執行緒同時解壓與解析，吞吐量隨核心數擴展。
+ * 每個執行緒依序號順序領取下一個 entry；{@link ZipFile} 的讀取是執行緒安全的，inflate 則各自獨立。
+ */
+@Component
+public class ZipFileArchiveReader implements ArchiveReader {
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    @Value("${app.data.import-readers:0}")
+    private int readerCount;
+
+    @Override
+    public void read(Path source, long firstEntry, AtomicLong bytesRead, EntryHandler handler)
+            throws IOException, InterruptedException {
+        try (ZipFile zipFile = new ZipFile(source.toFile())) {
+            List<IndexedEntry> entries = new ArrayList<>();
+            long entryIndex = -1;
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                entryIndex++;
+                if (entryIndex < firstEntry) {
+                    bytesRead.addAndGet(entry.getCompressedSize());
+                } else if (!entry.isDirectory() && ThreadStreamParser.isThreadFile(entry.getName())) {
+                    entries.add(new IndexedEntry(entryIndex, entry));
+                }
+            }
+            int threads = Math.min(entries.size(),
+                    readerCount > 0 ? readerCount : Runtime.getRuntime().availableProcessors());
+            if (threads == 0) {
+                return;
+            }
+
+            Cursor cursor = new Cursor(entries, handler);
+            ExecutorService pool = Executors.newFixedThreadPool(threads,
+                    StackOverflowThreadImporter.namedThreads("so-import-reader-"));
+            try {
+                List<Future<Void>> tasks = new ArrayList<>(threads);
+                for (int i = 0; i < threads; i++) {
+                    tasks.add(pool.submit(() -> {
+                        try {
+                            drain(zipFile, cursor, bytesRead, handler);
+                        } catch (Exception e) {
+                            cursor.stop();
+                            throw e;
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<Void> task : tasks) {
+                    await(task, cursor);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private void drain(ZipFile zipFile, Cursor cursor, AtomicLong bytesRead, EntryHandler handler)
+            throws IOException, InterruptedException {
+        IndexedEntry next;
+        while ((next = cursor.next()) != null) {
+            ZipEntry entry = next.entry();
+            try (InputStream input = new BufferedInputStream(zipFile.getInputStream(entry), READ_BUFFER_BYTES)) {
+                handler.readEntry(next.index(), entry.getName(), input);
+            }
+            bytesRead.addAndGet(entry.getCompressedSize());
+        }
+    }
+
+    private void await(Future<Void> task, Cursor cursor) throws IOException, InterruptedException {
+        try {
+            task.get();
+        } catch (ExecutionException e) {
+            cursor.stop();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof InterruptedException interrupted) {
+                throw interrupted;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            cursor.stop();
+            throw e;
+        }
+    }
+
+    private record IndexedEntry(long index, ZipEntry entry) {
+    }
+
+    /**
+     * 依序發放 entry，並在同一把鎖內呼叫 {@link EntryHandler#beforeEntry}，確保其順序與序號一致。
+     */
+    private static final class Cursor {
+
+        private final List<IndexedEntry> entries;
+        private final EntryHandler handler;
+        private int position;
+        private boolean stopped;
+
+        private Cursor(List<IndexedEntry> entries, EntryHandler handler) {
+            this.entries = entries;
+            this.handler = handler;
+        }
+
+        private synchronized IndexedEntry next() {
+            if (stopped || position >= entries.size() || !handler.shouldContinue()) {
+                return null;
+            }
+            IndexedEntry next = entries.get(position++);
+            handler.beforeEntry(next.index());
+            return next;
+        }
+
+        private synchronized void stop() {
+            stopped = true;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package cs209a.finalproject_demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "import_batch_markers", indexes = @Index(columnList = "fingerprint, batch_number"))
+public class ImportBatchMarker {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 128)
+    private String fingerprint;
+
+    private long batchNumber;
+
+    private int threadCount;
+
+    private long entryIndex;
+
+    private long entryOffset;
+
+    private Instant committedAt;
+}
@@ -0,0 +1,49 @@
+package cs209a.finalproject_demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "import_checkpoints")
+public class ImportCheckpoint {
+    @Id
+    @Column(length = 128)
+    private String fingerprint;
+
+    @Column(length = 512)
+    private String source;
+
+    /**
+     * 最後一筆已提交記錄所在的 entry 序號（依壓縮檔內順序，從 0 起算）。
+     */
+    private long entryIndex;
+
+    /**
+     * 該記錄結束處在 entry 解壓後內容中的位元組位移，續傳時從這裡開始解析。
+     */
+    private long entryOffset;
+
+    private long committedBatches;
+
+    private long importedCount;
+
+    private boolean completed;
+
+    private Instant updatedAt;
+
+    public ImportCheckpoint(String fingerprint, String source) {
+        this.fingerprint = fingerprint;
+        this.source = source;
+        this.entryIndex = -1;
+    }
+}
@@ -0,0 +1,48 @@
+package cs209a.finalproject_demo.model;
+
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OrderColumn;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多线程陷阱分类及其正则，可在运行期通过接口增删改；首次启动时以
+ * {@code AnalysisService.MULTITHREADING_PITFALL_KEYWORDS} 作为初始内容。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "pitfall_categories")
+public class PitfallCategory {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 128)
+    private String name;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "pitfall_category_patterns", joinColumns = @JoinColumn(name = "category_id"))
+    @OrderColumn(name = "position")
+    @Column(name = "pattern", nullable = false, columnDefinition = "TEXT")
+    private List<String> patterns = new ArrayList<>();
+
+    public PitfallCategory(String name, List<String> patterns) {
+        this.name = name;
+        this.patterns = new ArrayList<>(patterns);
+    }
+}
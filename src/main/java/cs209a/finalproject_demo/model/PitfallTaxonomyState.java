@@ -0,0 +1,33 @@
+package cs209a.finalproject_demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * 记录 {@code question_pitfalls} 是以哪一版分类规则计算的；规则的杂凑值改变时需要回填历史数据。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "pitfall_taxonomy_state")
+public class PitfallTaxonomyState {
+    public static final int SINGLETON_ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false, length = 64)
+    private String taxonomyHash;
+
+    private long classifiedQuestions;
+
+    private Instant classifiedAt;
+}
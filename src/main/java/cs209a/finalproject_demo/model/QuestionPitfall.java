@@ -0,0 +1,45 @@
+package cs209a.finalproject_demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * 问题命中的多线程陷阱分类，在匯入或更新时计算一次，分析接口只需对此表分组计数。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(QuestionPitfall.Key.class)
+@Table(name = "question_pitfalls", indexes = @Index(columnList = "category"))
+public class QuestionPitfall {
+    @Id
+    @Column(name = "question_id")
+    private Long questionId;
+
+    @Id
+    @Column(length = 128)
+    private String category;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long questionId;
+        private String category;
+    }
+}
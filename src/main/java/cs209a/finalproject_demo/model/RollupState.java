@@ -0,0 +1,32 @@
+package cs209a.finalproject_demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * 预计算汇总表的建置状态，以汇总名称为键。{@code version} 与程序中的定义不同（或尚无记录）时，
+ * 该汇总需要从基础表完整重建一次，之后才改由匯入批次增量维护。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "rollup_states")
+public class RollupState {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    private int version;
+
+    private long rowCount;
+
+    private Instant builtAt;
+}
@@ -0,0 +1,59 @@
+package cs209a.finalproject_demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * 每个标签在每个 UTC 自然月创建的问题数，以及得分、浏览、回答数与已采纳问题数的总和，由匯入批次在同一交易中增量维护。
+ * 趋势接口只需按月（或由月汇总成年）读取这张表，耗时与时间桶数量有关而与问题总数无关。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(TagMonthStat.Key.class)
+@Table(name = "tag_month_stats")
+public class TagMonthStat {
+    @Id
+    @Column(name = "tag_id")
+    private Long tagId;
+
+    @Id
+    @Column(name = "month_start")
+    private Instant monthStart;
+
+    private long questionCount;
+
+    private long scoreSum;
+
+    @Column(columnDefinition = "bigint not null default 0")
+    private long viewSum;
+
+    @Column(columnDefinition = "bigint not null default 0")
+    private long answerSum;
+
+    @Column(columnDefinition = "bigint not null default 0")
+    private long acceptedCount;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long tagId;
+        private Instant monthStart;
+    }
+}
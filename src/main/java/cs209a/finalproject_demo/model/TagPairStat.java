@@ -0,0 +1,52 @@
+package cs209a.finalproject_demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * 两个标签同时出现的问题数（{@code tagAId < tagBId}），由匯入批次在同一交易中增量维护。
+ * 共现接口据此排序取前几名（指定锚点时经由主键或 {@code tag_b_id} 索引只读相关的行），不必再对 {@code question_tags} 做全表自连接。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(TagPairStat.Key.class)
+@Table(name = "tag_pair_stats", indexes = {
+        @Index(name = "idx_tag_pair_stats_count", columnList = "question_count DESC"),
+        @Index(name = "idx_tag_pair_stats_tag_b", columnList = "tag_b_id")
+})
+public class TagPairStat {
+    @Id
+    @Column(name = "tag_a_id")
+    private Long tagAId;
+
+    @Id
+    @Column(name = "tag_b_id")
+    private Long tagBId;
+
+    @Column(name = "question_count")
+    private long questionCount;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long tagAId;
+        private Long tagBId;
+    }
+}
@@ -0,0 +1,33 @@
+package cs209a.finalproject_demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 每个标签的问题数，与 {@code tag_pair_stats} 一同增量维护与重建；{@code tag_id} 为 {@value #TOTAL_TAG_ID} 的行记录问题总数（含无标签的问题）。
+ * 共现接口按次数取前几名后只需按主键读取这些组合涉及的标签，计算关联度时也不必再对 {@code question_tags} 做全表聚合。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "tag_stats")
+public class TagStat {
+
+    /** 标签 ID 由序列产生、从 1 开始，0 不会与真实标签冲突。 */
+    public static final long TOTAL_TAG_ID = 0;
+
+    @Id
+    @Column(name = "tag_id")
+    private Long tagId;
+
+    @Column(name = "question_count")
+    private long questionCount;
+}
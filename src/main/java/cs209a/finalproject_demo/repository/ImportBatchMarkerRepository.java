@@ -0,0 +1,14 @@
+package cs209a.finalproject_demo.repository;
+
+import cs209a.finalproject_demo.model.ImportBatchMarker;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ImportBatchMarkerRepository extends JpaRepository<ImportBatchMarker, Long> {
+
+    @Modifying
+    @Query("DELETE FROM ImportBatchMarker m WHERE m.fingerprint = :fingerprint")
+    int deleteByFingerprint(@Param("fingerprint") String fingerprint);
+}
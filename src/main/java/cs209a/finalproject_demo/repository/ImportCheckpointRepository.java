@@ -0,0 +1,7 @@
+package cs209a.finalproject_demo.repository;
+
+import cs209a.finalproject_demo.model.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+}
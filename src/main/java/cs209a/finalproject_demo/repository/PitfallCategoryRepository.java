@@ -0,0 +1,15 @@
+package cs209a.finalproject_demo.repository;
+
+import cs209a.finalproject_demo.model.PitfallCategory;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface PitfallCategoryRepository extends JpaRepository<PitfallCategory, Long> {
+
+    List<PitfallCategory> findAllByOrderByIdAsc();
+
+    boolean existsByNameIgnoreCase(String name);
+
+    boolean existsByNameIgnoreCaseAndIdNot(String name, Long id);
+}
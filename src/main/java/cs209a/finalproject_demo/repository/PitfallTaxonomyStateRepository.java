@@ -0,0 +1,7 @@
+package cs209a.finalproject_demo.repository;
+
+import cs209a.finalproject_demo.model.PitfallTaxonomyState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PitfallTaxonomyStateRepository extends JpaRepository<PitfallTaxonomyState, Integer> {
+}
@@ -0,0 +1,61 @@
+package cs209a.finalproject_demo.repository;
+
+import cs209a.finalproject_demo.model.QuestionPitfall;
+import cs209a.finalproject_demo.repository.projection.CategoryCountRow;
+import cs209a.finalproject_demo.repository.projection.PitfallTrendRow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface QuestionPitfallRepository extends JpaRepository<QuestionPitfall, QuestionPitfall.Key> {
+
+    @Query(value = """
+            SELECT
+                            p.category AS category,
+                            COUNT(*) AS question_count
+            FROM question_pitfalls p
+            WHERE EXISTS (
+                            SELECT 1
+                            FROM question_tags qt
+                            JOIN tags t ON t.id = qt.tag_id
+                            WHERE qt.question_id = p.question_id
+                                    AND LOWER(t.name) = ANY(:tag_array)
+            )
+            GROUP BY p.category
+            """, nativeQuery = true)
+    List<CategoryCountRow> countByCategoryForTags(@Param("tag_array") String[] tagArray);
+
+    /**
+     * 一次分组同时得到所有分类在每个时间桶（UTC 月或年）的问题数。
+     */
+    @Query(value = """
+            SELECT
+                            p.category AS category,
+                            CASE WHEN :is_year
+                                            THEN date_trunc('year', q.creation_date AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'
+                                            ELSE date_trunc('month', q.creation_date AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'
+                            END AS bucket,
+                            COUNT(*) AS question_count
+            FROM question_pitfalls p
+            JOIN questions q ON q.id = p.question_id
+            WHERE q.creation_date >= :from_ts
+                            AND q.creation_date < :to_ts
+                            AND EXISTS (
+                                            SELECT 1
+                                            FROM question_tags qt
+                                            JOIN tags t ON t.id = qt.tag_id
+                                            WHERE qt.question_id = p.question_id
+                                                    AND LOWER(t.name) = ANY(:tag_array)
+                            )
+            GROUP BY p.category, bucket
+            ORDER BY p.category, bucket
+            """, nativeQuery = true)
+    List<PitfallTrendRow> countByCategoryAndBucketForTags(
+            @Param("tag_array") String[] tagArray,
+            @Param("from_ts") Instant from,
+            @Param("to_ts") Instant to,
+            @Param("is_year") boolean isYear);
+}
@@ -1,69 +1,59 @@
 package cs209a.finalproject_demo.repository;
 
 import cs209a.finalproject_demo.model.Question;
-import cs209a.finalproject_demo.repository.projection.TagPairRow;
 import cs209a.finalproject_demo.repository.projection.TopicTrendRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface QuestionRepository extends JpaRepository<Question, Long> {
 
+    /**
+     * 直接扫描基础表，按 UTC 日期统计 {@code [from_day, to_day)} 内各标签每天的问题数、得分、浏览、回答与已采纳问题数。
+     * 条件与分组都落在 {@code creation_day} 生成列上，可使用其索引；更粗的时间桶由调用方合并。
+     */
     @Query(value = """
             SELECT
-                                            bucketed.tag,
-                                            bucketed.bucket,
-                                            COUNT(bucketed.question_id) AS question_count,
-                                            COALESCE(SUM(bucketed.score), 0) AS score_sum
-            FROM (
-                                            SELECT
-                                                                            t.name AS tag,
-                                                                            q.id AS question_id,
-                                                                            q.score AS score,
-                                                                            CASE WHEN :is_year
-                                                                                                            THEN date_trunc('year', q.creation_date)
-                                                                                                            ELSE date_trunc('month', q.creation_date)
-                                                                            END AS bucket
-                                                FROM questions q
-                                                JOIN question_tags qt ON q.id = qt.question_id
-                                                JOIN tags t ON t.id = qt.tag_id
-                                                WHERE q.creation_date >= :from_ts
-                                                                AND q.creation_date <= :to_ts
-                                                                AND t.name = ANY(:tag_array)
-            ) AS bucketed
-            GROUP BY bucketed.tag, bucketed.bucket
-            ORDER BY bucketed.tag, bucketed.bucket
+                            t.name AS tag,
+                            CAST(q.creation_day AS timestamp) AT TIME ZONE 'UTC' AS bucket,
+                            COUNT(*) AS question_count,
+                            COALESCE(SUM(q.score), 0) AS score_sum,
+                            COALESCE(SUM(q.view_count), 0) AS view_sum,
+                            COALESCE(SUM(q.answer_count), 0) AS answer_sum,
+                            COUNT(q.accepted_answer_id) AS accepted_count
+            FROM tags t
+            JOIN question_tags qt ON qt.tag_id = t.id
+            JOIN questions q ON q.id = qt.question_id
+            WHERE t.name = ANY(:tag_array)
+                            AND q.creation_day >= :from_day
+                            AND q.creation_day < :to_day
+            GROUP BY t.name, q.creation_day
             """, nativeQuery = true)
-    List<TopicTrendRow> findTopicTrends(
+    List<TopicTrendRow> findDailyTopicCounts(
             @Param("tag_array") String[] tagArray,
-            @Param("from_ts") Instant from,
-            @Param("to_ts") Instant to,
-            @Param("is_year") boolean isYear);
-
-    @Query(value = """
-            SELECT
-                            t1.name AS tag_a,
-                            t2.name AS tag_b,
-                            COUNT(DISTINCT qt1.question_id) AS pair_count
-            FROM question_tags qt1
-            JOIN question_tags qt2
-                    ON qt1.question_id = qt2.question_id
-                    AND qt1.tag_id < qt2.tag_id
-            JOIN tags t1 ON t1.id = qt1.tag_id
-            JOIN tags t2 ON t2.id = qt2.tag_id
-            GROUP BY t1.name, t2.name
-            ORDER BY pair_count DESC, tag_a ASC, tag_b ASC
-            LIMIT :limit
-            """, nativeQuery = true)
-    List<TagPairRow> findTopTagPairs(@Param("limit") int limit);
+            @Param("from_day") LocalDate fromDay,
+            @Param("to_day") LocalDate toDay);
 
+    /**
+     * 以 keyset 分页取得带有指定标签的问题 ID，{@code afterId} 为上一页最后一个 ID。
+     */
     @Query("""
             SELECT DISTINCT q.id FROM Question q
             JOIN q.tags t
-            WHERE LOWER(t.name) IN :tagNames
+            WHERE LOWER(t.name) IN :tagNames AND q.id > :afterId
+            ORDER BY q.id
             """)
-    List<Long> findDistinctIdsByTagNames(@Param("tagNames") List<String> tagNames);
+    List<Long> findIdPageByTagNames(
+            @Param("tagNames") List<String> tagNames,
+            @Param("afterId") long afterId,
+            Pageable page);
+
+    @EntityGraph(attributePaths = { "answers", "tags" })
+    @Query("SELECT q FROM Question q WHERE q.id IN :ids ORDER BY q.id")
+    List<Question> findWithAnswersAndTagsByIdIn(@Param("ids") List<Long> ids);
 }
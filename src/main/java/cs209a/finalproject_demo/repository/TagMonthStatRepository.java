@@ -0,0 +1,37 @@
+package cs209a.finalproject_demo.repository;
+
+import cs209a.finalproject_demo.model.TagMonthStat;
+import cs209a.finalproject_demo.repository.projection.TopicTrendRow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface TagMonthStatRepository extends JpaRepository<TagMonthStat, TagMonthStat.Key> {
+
+    /**
+     * 读取 {@code [from_month, to_month)} 内各标签每月的行；季度与年份桶由调用方合并月份得到。
+     */
+    @Query(value = """
+            SELECT
+                            t.name AS tag,
+                            s.month_start AS bucket,
+                            s.question_count AS question_count,
+                            s.score_sum AS score_sum,
+                            s.view_sum AS view_sum,
+                            s.answer_sum AS answer_sum,
+                            s.accepted_count AS accepted_count
+            FROM tag_month_stats s
+            JOIN tags t ON t.id = s.tag_id
+            WHERE t.name = ANY(:tag_array)
+                            AND s.month_start >= :from_month
+                            AND s.month_start < :to_month
+                            AND s.question_count > 0
+            """, nativeQuery = true)
+    List<TopicTrendRow> findMonthlyTopicCounts(
+            @Param("tag_array") String[] tagArray,
+            @Param("from_month") Instant fromMonth,
+            @Param("to_month") Instant toMonth);
+}
@@ -1,10 +1,16 @@
 package cs209a.finalproject_demo.repository;
 
 import cs209a.finalproject_demo.model.Tag;
+import cs209a.finalproject_demo.repository.projection.TagNameRow;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface TagRepository extends JpaRepository<Tag, Long> {
     Optional<Tag> findByName(String name);
+
+    @Query("SELECT t.id AS id, t.name AS name FROM Tag t")
+    List<TagNameRow> findAllNames();
 }
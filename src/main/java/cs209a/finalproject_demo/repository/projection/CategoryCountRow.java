@@ -0,0 +1,7 @@
+package cs209a.finalproject_demo.repository.projection;
+
+public interface CategoryCountRow {
+    String getCategory();
+
+    Long getQuestionCount();
+}
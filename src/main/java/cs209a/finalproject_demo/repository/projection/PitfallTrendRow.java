@@ -0,0 +1,11 @@
+package cs209a.finalproject_demo.repository.projection;
+
+import java.time.Instant;
+
+public interface PitfallTrendRow {
+    String getCategory();
+
+    Instant getBucket();
+
+    Long getQuestionCount();
+}
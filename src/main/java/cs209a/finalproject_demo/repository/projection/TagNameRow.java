@@ -0,0 +1,7 @@
+package cs209a.finalproject_demo.repository.projection;
+
+public interface TagNameRow {
+    Long getId();
+
+    String getName();
+}
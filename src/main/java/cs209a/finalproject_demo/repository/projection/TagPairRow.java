@@ -1,9 +0,0 @@
-package cs209a.finalproject_demo.repository.projection;
-
-public interface TagPairRow {
-    String getTagA();
-
-    String getTagB();
-
-    Long getPairCount();
-}
@@ -10,4 +10,10 @@ public interface TopicTrendRow {
     Long getQuestionCount();
 
     Long getScoreSum();
+
+    Long getViewSum();
+
+    Long getAnswerSum();
+
+    Long getAcceptedCount();
 }
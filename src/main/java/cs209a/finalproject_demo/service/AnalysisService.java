@@ -1,31 +1,38 @@
 package cs209a.finalproject_demo.service;
 
 import cs209a.finalproject_demo.model.Question;
-import cs209a.finalproject_demo.repository.QuestionRepository;
+import cs209a.finalproject_demo.repository.QuestionPitfallRepository;
+import cs209a.finalproject_demo.repository.projection.CategoryCountRow;
+import cs209a.finalproject_demo.repository.projection.PitfallTrendRow;
+import cs209a.finalproject_demo.service.AnalyticsResultCache.CachedResult;
 import cs209a.finalproject_demo.service.dto.CategoryCount;
 import cs209a.finalproject_demo.service.dto.MultithreadingPitfallResponse;
+import cs209a.finalproject_demo.service.dto.PitfallTrendPoint;
+import cs209a.finalproject_demo.service.dto.PitfallTrendResponse;
+import cs209a.finalproject_demo.service.dto.PitfallTrendSeries;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.Comparator;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Service
 public class AnalysisService {
 
     /**
-     * 关键字与陷阱分类的映射，可复用在其它分析逻辑中。
+     * 默认的关键字与陷阱分类映射，首次启动时写入 {@code pitfall_categories}，之后可通过接口在运行期修改。
      */
     public static final Map<String, List<String>> MULTITHREADING_PITFALL_KEYWORDS;
 
-    private static final Map<String, List<Pattern>> MULTITHREADING_PITFALL_PATTERNS;
-
     private static final List<String> MULTITHREADING_TAGS = List.of(
             "java",
             "multithreading",
@@ -74,39 +81,53 @@ public class AnalysisService {
                 "\\bInterruptedException\\b"));
         MULTITHREADING_PITFALL_KEYWORDS = Collections.unmodifiableMap(keywords);
 
-        MULTITHREADING_PITFALL_PATTERNS = Collections.unmodifiableMap(
-                MULTITHREADING_PITFALL_KEYWORDS.entrySet().stream()
-                        .collect(Collectors.toMap(
-                                Map.Entry::getKey,
-                                entry -> entry.getValue().stream()
-                                        .map(pattern -> Pattern.compile(pattern, Pattern.CASE_INSENSITIVE))
-                                        .toList(),
-                                (left, right) -> left,
-                                LinkedHashMap::new)));
     }
 
-    private final QuestionRepository questionRepository;
+    private final QuestionScanService questionScanService;
+    private final QuestionPitfallRepository questionPitfallRepository;
+    private final PitfallClassifier pitfallClassifier;
+    private final PitfallClassificationService pitfallClassificationService;
+    private final AnalyticsResultCache resultCache;
+    private final ColumnarQuestionStore columnarStore;
+
+    public AnalysisService(
+            QuestionScanService questionScanService,
+            QuestionPitfallRepository questionPitfallRepository,
+            PitfallClassifier pitfallClassifier,
+            PitfallClassificationService pitfallClassificationService,
+            AnalyticsResultCache resultCache,
+            ColumnarQuestionStore columnarStore) {
+        this.questionScanService = questionScanService;
+        this.questionPitfallRepository = questionPitfallRepository;
+        this.pitfallClassifier = pitfallClassifier;
+        this.pitfallClassificationService = pitfallClassificationService;
+        this.resultCache = resultCache;
+        this.columnarStore = columnarStore;
+    }
 
-    public AnalysisService(QuestionRepository questionRepository) {
-        this.questionRepository = questionRepository;
+    /**
+     * 缓存键包含分类规则版本，规则修改后不会再返回旧分类的结果；超过分类数的 {@code top} 共用同一个条目。
+     */
+    public CachedResult<MultithreadingPitfallResponse> analyzeMultithreadingPitfalls(int requestedTop) {
+        PitfallClassifier.Taxonomy taxonomy = pitfallClassifier.current();
+        int effectiveTop = Math.min(Math.max(1, requestedTop), Math.max(1, taxonomy.categories().size()));
+        return resultCache.lookup("pitfalls", List.of(effectiveTop, taxonomy.version()),
+                () -> computeMultithreadingPitfalls(effectiveTop, taxonomy));
     }
 
-    public MultithreadingPitfallResponse analyzeMultithreadingPitfalls(int requestedTop) {
+    private MultithreadingPitfallResponse computeMultithreadingPitfalls(
+            int requestedTop,
+            PitfallClassifier.Taxonomy taxonomy) {
         List<String> tagFilters = toLowerCaseTags(MULTITHREADING_TAGS);
-        List<Long> questionIds = questionRepository.findDistinctIdsByTagNames(tagFilters);
-        List<Question> questions = questionIds.isEmpty() ? List.of() : questionRepository.findAllById(questionIds);
-
-        Map<String, Integer> frequency = initFrequencyMap();
-        for (Question question : questions) {
-            String searchable = combineTitleAndBody(question);
-            if (searchable.isEmpty()) {
-                continue;
-            }
-            for (Map.Entry<String, List<Pattern>> entry : MULTITHREADING_PITFALL_PATTERNS.entrySet()) {
-                if (matchesAny(searchable, entry.getValue())) {
-                    frequency.merge(entry.getKey(), 1, (current, increment) -> current + increment);
-                }
-            }
+        boolean classificationCurrent = pitfallClassificationService.isCurrent();
+        ColumnarQuestionStore.Snapshot snapshot = columnarStore.pitfallSnapshot(taxonomy.hash(), classificationCurrent);
+        Map<String, Integer> frequency;
+        if (snapshot != null) {
+            frequency = countColumnarPitfalls(snapshot, tagFilters, taxonomy);
+        } else if (classificationCurrent) {
+            frequency = countStoredPitfalls(tagFilters, taxonomy);
+        } else {
+            frequency = countPitfallsLive(tagFilters, taxonomy);
         }
 
         List<CategoryCount> sorted = frequency.entrySet().stream()
@@ -123,12 +144,151 @@ public class AnalysisService {
         return new MultithreadingPitfallResponse(actualTop, topCategories);
     }
 
-    private Map<String, Integer> initFrequencyMap() {
+    /**
+     * 各陷阱分类按 UTC 月或年统计的问题数。分类表为最新时只做一次分组查询；
+     * 回填期间退回一次分页扫描，同时累计所有时间桶，而不是每个时间桶各分析一次。
+     */
+    public CachedResult<PitfallTrendResponse> analyzePitfallTrends(LocalDate fromDate, LocalDate toDate, String bucket) {
+        boolean isYear = isYearBucket(bucket);
+        Instant from = resolveFromInstant(fromDate);
+        Instant to = resolveToInstant(toDate);
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Parameter 'from' must not be after 'to'.");
+        }
+        PitfallClassifier.Taxonomy taxonomy = pitfallClassifier.current();
+        return resultCache.lookup("pitfall-trends", List.of(from, to, isYear, taxonomy.version()),
+                () -> computePitfallTrends(from, to, isYear, taxonomy));
+    }
+
+    private static boolean isYearBucket(String bucket) {
+        String normalized = bucket == null ? "" : bucket.trim().toLowerCase(Locale.ENGLISH);
+        return switch (normalized) {
+            case "month" -> false;
+            case "year" -> true;
+            default -> throw new IllegalArgumentException("Parameter 'bucket' must be 'month' or 'year'.");
+        };
+    }
+
+    private PitfallTrendResponse computePitfallTrends(
+            Instant from,
+            Instant to,
+            boolean isYear,
+            PitfallClassifier.Taxonomy taxonomy) {
+        List<String> tagFilters = toLowerCaseTags(MULTITHREADING_TAGS);
+
+        Map<String, Map<Instant, Long>> counts = new LinkedHashMap<>();
+        taxonomy.categories().forEach(category -> counts.put(category, new TreeMap<>()));
+        if (pitfallClassificationService.isCurrent()) {
+            for (PitfallTrendRow row : questionPitfallRepository.countByCategoryAndBucketForTags(
+                    tagFilters.toArray(String[]::new), from, to, isYear)) {
+                Map<Instant, Long> points = counts.get(row.getCategory());
+                if (points != null) {
+                    points.put(row.getBucket(), row.getQuestionCount());
+                }
+            }
+        } else {
+            PitfallTrendAccumulator trends = questionScanService.scan(
+                    tagFilters, () -> new PitfallTrendAccumulator(taxonomy, from, to, isYear));
+            List<String> categories = taxonomy.categories();
+            trends.counts.forEach((bucketStart, perCategory) -> {
+                for (int i = 0; i < perCategory.length; i++) {
+                    if (perCategory[i] > 0) {
+                        counts.get(categories.get(i)).put(bucketStart, perCategory[i]);
+                    }
+                }
+            });
+        }
+
+        List<PitfallTrendSeries> series = counts.entrySet().stream()
+                .map(entry -> new PitfallTrendSeries(entry.getKey(), entry.getValue().entrySet().stream()
+                        .map(point -> new PitfallTrendPoint(point.getKey(), point.getValue()))
+                        .toList()))
+                .toList();
+        return new PitfallTrendResponse(from, to, isYear ? "year" : "month", series);
+    }
+
+    /**
+     * 读取匯入时保存的分类结果，只是一次分组计数，与正文长度无关。
+     */
+    private Map<String, Integer> countStoredPitfalls(List<String> tagFilters, PitfallClassifier.Taxonomy taxonomy) {
+        Map<String, Integer> frequency = initFrequencyMap(taxonomy.categories());
+        for (CategoryCountRow row : questionPitfallRepository.countByCategoryForTags(tagFilters.toArray(String[]::new))) {
+            frequency.computeIfPresent(row.getCategory(), (category, current) -> row.getQuestionCount().intValue());
+        }
+        return frequency;
+    }
+
+    /**
+     * 列式存储中每个问题的陷阱分类是一个位掩码，带有任一相关标签的问题各走访一次，逐位计数。
+     */
+    private Map<String, Integer> countColumnarPitfalls(
+            ColumnarQuestionStore.Snapshot snapshot,
+            List<String> tagFilters,
+            PitfallClassifier.Taxonomy taxonomy) {
+        int[] tagIds = tagFilters.stream()
+                .map(columnarStore::tagId)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        List<String> categories = snapshot.pitfallCategories();
+        int[] counts = new int[categories.size()];
+        snapshot.forEachTaggedAny(tagIds, (segment, row) -> {
+            long mask = segment.pitfallMask(row);
+            while (mask != 0) {
+                counts[Long.numberOfTrailingZeros(mask)]++;
+                mask &= mask - 1;
+            }
+        });
+
+        Map<String, Integer> frequency = initFrequencyMap(taxonomy.categories());
+        for (int i = 0; i < counts.length; i++) {
+            int count = counts[i];
+            frequency.computeIfPresent(categories.get(i), (category, current) -> count);
+        }
+        return frequency;
+    }
+
+    /**
+     * 分类表尚在回填时的退路：分页扫描相关问题并在 fork-join 池中即时分类。
+     */
+    private Map<String, Integer> countPitfallsLive(List<String> tagFilters, PitfallClassifier.Taxonomy taxonomy) {
+        List<String> categories = taxonomy.categories();
+        PitfallCountAccumulator counts = questionScanService.scan(
+                tagFilters, () -> new PitfallCountAccumulator(taxonomy));
+
+        Map<String, Integer> frequency = initFrequencyMap(categories);
+        for (int i = 0; i < categories.size(); i++) {
+            frequency.put(categories.get(i), counts.counts[i]);
+        }
+        return frequency;
+    }
+
+    private Map<String, Integer> initFrequencyMap(List<String> categories) {
         Map<String, Integer> frequency = new LinkedHashMap<>();
-        MULTITHREADING_PITFALL_KEYWORDS.keySet().forEach(category -> frequency.put(category, 0));
+        categories.forEach(category -> frequency.put(category, 0));
         return frequency;
     }
 
+    private Instant resolveFromInstant(LocalDate fromDate) {
+        LocalDate date = fromDate != null
+                ? fromDate
+                : LocalDate.now(ZoneOffset.UTC).minusYears(3).withDayOfMonth(1);
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private Instant resolveToInstant(LocalDate toDate) {
+        LocalDate date = toDate != null
+                ? toDate.plusDays(1)
+                : LocalDate.now(ZoneOffset.UTC).plusDays(1);
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private static Instant bucketStart(Instant instant, boolean isYear) {
+        LocalDate date = LocalDate.ofInstant(instant, ZoneOffset.UTC);
+        LocalDate start = isYear ? date.withDayOfYear(1) : date.withDayOfMonth(1);
+        return start.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
     private List<String> toLowerCaseTags(List<String> tags) {
         return tags.stream()
                 .filter(Objects::nonNull)
@@ -137,18 +297,81 @@ public class AnalysisService {
                 .toList();
     }
 
-    private String combineTitleAndBody(Question question) {
-        String title = question.getTitle() == null ? "" : question.getTitle();
-        String body = question.getBody() == null ? "" : question.getBody();
-        return (title + " " + body).trim();
+    private static final class PitfallCountAccumulator implements ScanAccumulator<Question, PitfallCountAccumulator> {
+
+        private final PitfallClassifier.Taxonomy taxonomy;
+        private final Map<String, Integer> indexByCategory = new HashMap<>();
+        private final int[] counts;
+
+        private PitfallCountAccumulator(PitfallClassifier.Taxonomy taxonomy) {
+            this.taxonomy = taxonomy;
+            List<String> categories = taxonomy.categories();
+            for (int i = 0; i < categories.size(); i++) {
+                indexByCategory.put(categories.get(i), i);
+            }
+            this.counts = new int[categories.size()];
+        }
+
+        @Override
+        public void accept(Question question) {
+            for (String category : taxonomy.classify(question.getTitle(), question.getBody())) {
+                counts[indexByCategory.get(category)]++;
+            }
+        }
+
+        @Override
+        public void merge(PitfallCountAccumulator other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+        }
     }
 
-    private boolean matchesAny(String text, List<Pattern> patterns) {
-        for (Pattern pattern : patterns) {
-            if (pattern.matcher(text).find()) {
-                return true;
+    private static final class PitfallTrendAccumulator implements ScanAccumulator<Question, PitfallTrendAccumulator> {
+
+        private final PitfallClassifier.Taxonomy taxonomy;
+        private final Instant from;
+        private final Instant to;
+        private final boolean isYear;
+        private final Map<String, Integer> indexByCategory = new HashMap<>();
+        private final Map<Instant, long[]> counts = new HashMap<>();
+
+        private PitfallTrendAccumulator(PitfallClassifier.Taxonomy taxonomy, Instant from, Instant to, boolean isYear) {
+            this.taxonomy = taxonomy;
+            this.from = from;
+            this.to = to;
+            this.isYear = isYear;
+            List<String> categories = taxonomy.categories();
+            for (int i = 0; i < categories.size(); i++) {
+                indexByCategory.put(categories.get(i), i);
+            }
+        }
+
+        @Override
+        public void accept(Question question) {
+            Instant created = question.getCreationDate();
+            if (created == null || created.isBefore(from) || !created.isBefore(to)) {
+                return;
+            }
+            List<String> matched = taxonomy.classify(question.getTitle(), question.getBody());
+            if (matched.isEmpty()) {
+                return;
             }
+            long[] perCategory = counts.computeIfAbsent(bucketStart(created, isYear),
+                    key -> new long[indexByCategory.size()]);
+            for (String category : matched) {
+                perCategory[indexByCategory.get(category)]++;
+            }
+        }
+
+        @Override
+        public void merge(PitfallTrendAccumulator other) {
+            other.counts.forEach((bucketStart, perCategory) -> {
+                long[] target = counts.computeIfAbsent(bucketStart, key -> new long[perCategory.length]);
+                for (int i = 0; i < perCategory.length; i++) {
+                    target[i] += perCategory[i];
+                }
+            });
         }
-        return false;
     }
 }
@@ -0,0 +1,144 @@
+package cs209a.finalproject_demo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * {@code /api/topics/*} 分析结果的有界 LRU 缓存，以「接口名 + 规范化后的参数」为键。
+ * <p>
+ * 每个条目属于某一个 {@link DatasetVersion}：版本递增后第一个请求会清空旧条目，
+ * 计算途中版本已变化的结果不会写入缓存。ETag 由版本与键的摘要组成，不需要先算出结果，
+ * 因此条件请求命中时连缓存都不必查询。命中、未命中、淘汰与失效次数以 {@code analytics.cache.*}
+ * 指标暴露在 actuator 的 {@code /actuator/metrics} 下。
+ */
+@Component
+public class AnalyticsResultCache {
+
+    private final DatasetVersion datasetVersion;
+    private final int maxEntries;
+    private final Map<String, Object> entries;
+    private long entriesVersion;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter invalidations;
+
+    public AnalyticsResultCache(
+            DatasetVersion datasetVersion,
+            MeterRegistry meterRegistry,
+            @Value("${app.analysis.cache-size:256}") int maxEntries) {
+        this.datasetVersion = datasetVersion;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                if (size() > AnalyticsResultCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.entriesVersion = datasetVersion.current();
+        this.hits = Counter.builder("analytics.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("analytics.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("analytics.cache.evictions")
+                .description("超出容量而被淘汰的条目数")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("analytics.cache.invalidations")
+                .description("数据集版本变化而清除的条目数")
+                .register(meterRegistry);
+        Gauge.builder("analytics.cache.size", this, AnalyticsResultCache::size).register(meterRegistry);
+        Gauge.builder("analytics.cache.hit.ratio", this, AnalyticsResultCache::hitRatio).register(meterRegistry);
+    }
+
+    /**
+     * @param parameters 已规范化的参数（默认值已代入、顺序固定），其 {@code toString()} 构成缓存键
+     * @param compute    缓存未命中时计算结果；只有在调用 {@link CachedResult#value()} 时才会执行
+     */
+    public <T> CachedResult<T> lookup(String endpoint, List<?> parameters, Supplier<T> compute) {
+        long version = datasetVersion.current();
+        String key = endpoint + parameters;
+        String etag = "\"" + datasetVersion.epoch() + "-" + version + "-" + digest(key) + "\"";
+        return new CachedResult<>(etag, () -> getOrCompute(version, key, compute));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getOrCompute(long version, String key, Supplier<T> compute) {
+        synchronized (this) {
+            if (version > entriesVersion) {
+                invalidations.increment(entries.size());
+                entries.clear();
+                entriesVersion = version;
+            }
+            if (version == entriesVersion) {
+                Object cached = entries.get(key);
+                if (cached != null) {
+                    hits.increment();
+                    return (T) cached;
+                }
+            }
+        }
+        misses.increment();
+        T value = compute.get();
+        synchronized (this) {
+            if (version == entriesVersion && datasetVersion.current() == version) {
+                entries.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private static String digest(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM 不支援 SHA-256", e);
+        }
+    }
+
+    /**
+     * 某次查询的 ETag 与延迟计算的结果。
+     */
+    public static final class CachedResult<T> {
+
+        private final String etag;
+        private final Supplier<T> loader;
+
+        private CachedResult(String etag, Supplier<T> loader) {
+            this.etag = etag;
+            this.loader = loader;
+        }
+
+        public String etag() {
+            return etag;
+        }
+
+        public T value() {
+            return loader.get();
+        }
+    }
+}
@@ -0,0 +1,898 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.importer.QuestionsImportedEvent;
+import cs209a.finalproject_demo.util.LongLongHashMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 进程内的列式问题存储（{@code app.analysis.columnar.enabled=true} 时启用）：每个问题只保留分析接口需要的数值，
+ * 以基本型别数组按列存放，标签以 CSR（行偏移 + 标签 ID）编码，并为每个标签建立行号倒排表。
+ * <p>
+ * 启动后在背景一次载入，之后每个匯入批次提交后只重新读取该批问题。已载入的基础段保持不变，
+ * 被更新的行以墓碑位图标记，新内容写入较小的增量段；增量段超过基础段的八分之一时合并回基础段。
+ * 读取端拿到的 {@link Snapshot} 不会再改变，可在无锁、不配置物件的循环中直接扫描数组。
+ * 载入完成前 {@link #isReady()} 为 {@code false}，分析接口应照旧查询数据库。
+ */
+@Service
+public class ColumnarQuestionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarQuestionStore.class);
+
+    /** 无创建时间。 */
+    public static final long NO_DATE = Long.MIN_VALUE;
+    /** 没有带创建时间的回答，或问题本身没有创建时间。 */
+    public static final int NO_ANSWER = Integer.MIN_VALUE;
+
+    /** {@code accepted_answer_id} 不为空。 */
+    public static final int FLAG_HAS_ACCEPTED_ID = 1;
+    /** 找到了被采纳的回答（按 {@code accepted_answer_id}，否则按回答的 {@code accepted} 标记）。 */
+    public static final int FLAG_ACCEPTED_FOUND = 2;
+    /** 被采纳的回答有得分。 */
+    public static final int FLAG_ACCEPTED_SCORE = 4;
+    /** {@code answer_count} 为空，{@link Segment#answers} 取自实际的回答数。 */
+    public static final int FLAG_ANSWER_COUNT_NULL = 8;
+
+    private static final int MAX_PITFALL_CATEGORIES = Long.SIZE;
+    private static final int LOAD_FETCH_SIZE = 5000;
+    private static final int MIN_COMPACT_ROWS = 10_000;
+
+    private static final String SELECT_COLUMNS = """
+            SELECT
+                q.id,
+                q.creation_date,
+                q.score,
+                q.view_count,
+                q.answer_count,
+                fa.answer_rows,
+                q.owner_reputation,
+                q.accepted_answer_id IS NOT NULL AS has_accepted_id,
+                (SELECT COUNT(*) FROM regexp_matches(q.body, '<code\\y', 'gi')) AS code_blocks,
+                CAST(trunc(EXTRACT(EPOCH FROM (fa.first_answer - q.creation_date)) / 60) AS bigint) AS first_answer_minutes,
+                acc.found AS accepted_found,
+                acc.score AS accepted_score,
+                ARRAY(SELECT qt.tag_id FROM question_tags qt WHERE qt.question_id = q.id ORDER BY qt.tag_id) AS tag_ids,
+                ARRAY(SELECT p.category FROM question_pitfalls p WHERE p.question_id = q.id) AS pitfalls
+            FROM questions q
+            LEFT JOIN LATERAL (
+                SELECT MIN(a.creation_date) AS first_answer, COUNT(*) AS answer_rows
+                FROM answers a
+                WHERE a.question_id = q.id
+            ) fa ON true
+            LEFT JOIN LATERAL (
+                SELECT true AS found, a.score
+                FROM answers a
+                WHERE a.question_id = q.id AND (a.id = q.accepted_answer_id OR a.accepted)
+                ORDER BY (a.id = q.accepted_answer_id) DESC NULLS LAST
+                LIMIT 1
+            ) acc ON true
+            """;
+
+    private static final String SELECT_ALL = SELECT_COLUMNS + "ORDER BY q.id";
+
+    private static final String SELECT_BY_IDS = SELECT_COLUMNS + "WHERE q.id = ANY(?) ORDER BY q.id";
+
+    private static final String SELECT_PITFALLS = "SELECT question_id, category FROM question_pitfalls";
+
+    private static final String SELECT_PITFALLS_BY_IDS =
+            "SELECT question_id, category FROM question_pitfalls WHERE question_id = ANY(?)";
+
+    private static final String SELECT_TAG_NAMES = "SELECT id, name FROM tags";
+
+    private static final String SELECT_TAG_NAMES_BY_IDS = "SELECT id, name FROM tags WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "columnar-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Integer, String> tagNames = new ConcurrentHashMap<>();
+    private final Map<String, Integer> tagIds = new ConcurrentHashMap<>();
+    private final Object updateLock = new Object();
+    private Set<Long> pendingIds = new LinkedHashSet<>();
+    /** 重新载入陷阱分类期间被更新的问题，替换快照前需按 ID 重读；未在重新载入时为 {@code null}。 */
+    private Set<Long> pitfallTouchedIds;
+    private volatile Snapshot snapshot;
+    private volatile boolean pitfallRefreshScheduled;
+
+    public ColumnarQuestionStore(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.analysis.columnar.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingTemplate.setFetchSize(LOAD_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        Gauge.builder("analytics.columnar.rows", this, store -> {
+                    Snapshot current = store.snapshot;
+                    return current == null ? 0 : current.rowCount();
+                })
+                .description("列式存储中的有效问题数")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * @return 目前的快照，尚未载入或未启用时为 {@code null}
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 陷阱分类掩码与 {@code taxonomyHash} 一致时返回目前的快照。不一致且 {@code classificationCurrent}
+     * （{@code question_pitfalls} 已按该规则回填完毕）时，在背景重新载入掩码，本次返回 {@code null}。
+     */
+    public Snapshot pitfallSnapshot(String taxonomyHash, boolean classificationCurrent) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        if (classificationCurrent && taxonomyHash.equals(current.pitfallHash)) {
+            return current.pitfallOverflow ? null : current;
+        }
+        if (classificationCurrent && !pitfallRefreshScheduled) {
+            pitfallRefreshScheduled = true;
+            executor.execute(() -> refreshPitfalls(taxonomyHash));
+        }
+        return null;
+    }
+
+    public Integer tagId(String name) {
+        return tagIds.get(name);
+    }
+
+    public String tagName(int tagId) {
+        return tagNames.get(tagId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (enabled) {
+            executor.execute(this::load);
+        }
+    }
+
+    /**
+     * 在数据集版本递增之前执行（同为提交后监听器，顺序在前），拿到新版本号的请求一定看得到这批问题。
+     * 初次载入尚未完成时先记下 ID，载入完成后再补读；载入失败后不再记录。
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQuestionsImported(QuestionsImportedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (updateLock) {
+            if (snapshot == null) {
+                if (pendingIds != null) {
+                    pendingIds.addAll(event.questionIds());
+                }
+                return;
+            }
+            applyUpdates(event.questionIds());
+        }
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try {
+            streamingTemplate.query(SELECT_TAG_NAMES, (RowCallbackHandler) this::registerTagName);
+            SegmentBuilder builder = new SegmentBuilder(List.of());
+            readOnlyTransaction.executeWithoutResult(status ->
+                    streamingTemplate.query(SELECT_ALL, (RowCallbackHandler) builder::add));
+            Segment base = builder.build();
+            synchronized (updateLock) {
+                snapshot = new Snapshot(base, SegmentBuilder.empty(), new BitSet(), builder.categories(),
+                        null, builder.categoryOverflow());
+                List<Long> pending = new ArrayList<>(pendingIds);
+                pendingIds = null;
+                if (!pending.isEmpty()) {
+                    applyUpdates(pending);
+                }
+            }
+            log.info("列式存储载入完成，共 {} 个问题，耗时 {} ms。",
+                    base.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            synchronized (updateLock) {
+                pendingIds = null;
+            }
+            log.error("载入列式存储失败，分析接口将继续查询数据库", e);
+        }
+    }
+
+    /**
+     * 须持有 {@link #updateLock}：读取与替换在同一把锁下完成，后读的一定不比先读的旧。
+     */
+    private void applyUpdates(List<Long> questionIds) {
+        if (questionIds.isEmpty()) {
+            return;
+        }
+        if (pitfallTouchedIds != null) {
+            pitfallTouchedIds.addAll(questionIds);
+        }
+        Snapshot current = snapshot;
+        SegmentBuilder fresh = new SegmentBuilder(current.pitfallCategories);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_BY_IDS);
+            statement.setArray(1, connection.createArrayOf("bigint", questionIds.toArray()));
+            return statement;
+        }, (RowCallbackHandler) fresh::add);
+        registerMissingTagNames(fresh);
+
+        BitSet baseDeleted = (BitSet) current.baseDeleted.clone();
+        SegmentBuilder delta = new SegmentBuilder(fresh.categories());
+        Segment added = fresh.build();
+        for (int row = 0; row < added.size(); row++) {
+            int baseRow = current.base.find(added.ids[row]);
+            if (baseRow >= 0) {
+                baseDeleted.set(baseRow);
+            }
+        }
+        // 合并旧增量段与新读取的行，两者都按 ID 排序；同一 ID 以新读取的为准
+        Segment oldDelta = current.delta;
+        int i = 0;
+        int j = 0;
+        while (i < oldDelta.size() || j < added.size()) {
+            if (j == added.size() || (i < oldDelta.size() && oldDelta.ids[i] < added.ids[j])) {
+                delta.copy(oldDelta, i++);
+            } else {
+                if (i < oldDelta.size() && oldDelta.ids[i] == added.ids[j]) {
+                    i++;
+                }
+                delta.copy(added, j++);
+            }
+        }
+        Segment deltaSegment = delta.build();
+        Snapshot next = new Snapshot(current.base, deltaSegment, baseDeleted, delta.categories(),
+                current.pitfallHash, current.pitfallOverflow || fresh.categoryOverflow());
+        if (deltaSegment.size() > Math.max(MIN_COMPACT_ROWS, current.base.size() / 8)) {
+            next = next.compact();
+        }
+        snapshot = next;
+    }
+
+    /**
+     * 在锁外于唯读交易中串流读取 {@code question_pitfalls}，按问题 ID 累计掩码；读取期间匯入批次照常更新存储，
+     * 被更新的 ID 另行记下。最后只在持锁时按 ID 重读这些问题的分类，再把掩码对应到当下快照的各行并替换快照。
+     */
+    private void refreshPitfalls(String taxonomyHash) {
+        try {
+            Map<String, Integer> indexes = new HashMap<>();
+            List<String> categories = new ArrayList<>();
+            LongLongHashMap masks = new LongLongHashMap();
+            boolean[] overflow = new boolean[1];
+            RowCallbackHandler collect = rs -> {
+                long questionId = rs.getLong(1);
+                Integer index = indexes.computeIfAbsent(rs.getString(2), category -> {
+                    categories.add(category);
+                    return categories.size() - 1;
+                });
+                if (index >= MAX_PITFALL_CATEGORIES) {
+                    overflow[0] = true;
+                    return;
+                }
+                masks.put(questionId, masks.get(questionId, 0) | 1L << index);
+            };
+            synchronized (updateLock) {
+                pitfallTouchedIds = new LinkedHashSet<>();
+            }
+            readOnlyTransaction.executeWithoutResult(status ->
+                    streamingTemplate.query(SELECT_PITFALLS, collect));
+            synchronized (updateLock) {
+                if (!pitfallTouchedIds.isEmpty()) {
+                    List<Long> touched = new ArrayList<>(pitfallTouchedIds);
+                    touched.forEach(questionId -> masks.put(questionId, 0));
+                    jdbcTemplate.query(connection -> {
+                        PreparedStatement statement = connection.prepareStatement(SELECT_PITFALLS_BY_IDS);
+                        statement.setArray(1, connection.createArrayOf("bigint", touched.toArray()));
+                        return statement;
+                    }, collect);
+                }
+                Snapshot current = snapshot;
+                snapshot = new Snapshot(
+                        current.base.withPitfalls(masksFor(current.base, masks)),
+                        current.delta.withPitfalls(masksFor(current.delta, masks)),
+                        current.baseDeleted,
+                        List.copyOf(categories),
+                        taxonomyHash,
+                        overflow[0]);
+            }
+            log.info("列式存储已按分类规则 {} 重新载入陷阱分类。", taxonomyHash);
+        } catch (RuntimeException e) {
+            log.error("重新载入列式存储的陷阱分类失败", e);
+        } finally {
+            synchronized (updateLock) {
+                pitfallTouchedIds = null;
+            }
+            pitfallRefreshScheduled = false;
+        }
+    }
+
+    private static long[] masksFor(Segment segment, LongLongHashMap masks) {
+        long[] result = new long[segment.size()];
+        for (int row = 0; row < result.length; row++) {
+            result[row] = masks.get(segment.ids[row], 0);
+        }
+        return result;
+    }
+
+    private void registerTagName(ResultSet rs) throws SQLException {
+        int id = Math.toIntExact(rs.getLong(1));
+        String name = rs.getString(2);
+        tagNames.put(id, name);
+        tagIds.put(name, id);
+    }
+
+    private void registerMissingTagNames(SegmentBuilder builder) {
+        Set<Long> missing = new LinkedHashSet<>();
+        for (int i = 0; i < builder.tagCount; i++) {
+            if (!tagNames.containsKey(builder.tagIds[i])) {
+                missing.add((long) builder.tagIds[i]);
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_TAG_NAMES_BY_IDS);
+                statement.setArray(1, connection.createArrayOf("bigint", missing.toArray()));
+                return statement;
+            }, (RowCallbackHandler) this::registerTagName);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 逐行回调，供分析服务在快照上写自己的累计循环；回调只应读取 {@code segment} 在 {@code row} 的列。
+     */
+    @FunctionalInterface
+    public interface RowVisitor {
+        void visit(Segment segment, int row);
+    }
+
+    /**
+     * 某一时刻的存储内容：基础段（扣除墓碑）加上增量段。
+     * {@code pitfallHash} 为重新载入陷阱分类掩码时的规则杂凑值，初次载入后尚未核对时为 {@code null}；
+     * 分类数超过 64 个时掩码放不下，{@code pitfallOverflow} 为 {@code true}。
+     */
+    public static final class Snapshot {
+
+        private final Segment base;
+        private final Segment delta;
+        private final BitSet baseDeleted;
+        private final List<String> pitfallCategories;
+        private final String pitfallHash;
+        private final boolean pitfallOverflow;
+        private final int rowCount;
+
+        private Snapshot(Segment base, Segment delta, BitSet baseDeleted, List<String> pitfallCategories,
+                String pitfallHash, boolean pitfallOverflow) {
+            this.base = base;
+            this.delta = delta;
+            this.baseDeleted = baseDeleted;
+            this.pitfallCategories = pitfallCategories;
+            this.pitfallHash = pitfallHash;
+            this.pitfallOverflow = pitfallOverflow;
+            this.rowCount = base.size() - baseDeleted.cardinality() + delta.size();
+        }
+
+        public int rowCount() {
+            return rowCount;
+        }
+
+        /**
+         * 大于快照中所有标签 ID，可用来配置按标签 ID 下标计数的数组。
+         */
+        public int tagIdLimit() {
+            return Math.max(base.tagIdLimit(), delta.tagIdLimit());
+        }
+
+        /**
+         * 所有行中最早的创建时间（UTC 纪元秒），墓碑行也计入；没有任何创建时间时大于 {@link #maxCreated()}。
+         */
+        public long minCreated() {
+            return Math.min(base.minCreated, delta.minCreated);
+        }
+
+        /**
+         * 所有行中最晚的创建时间（UTC 纪元秒），墓碑行也计入；没有任何创建时间时为 {@link #NO_DATE}。
+         */
+        public long maxCreated() {
+            return Math.max(base.maxCreated, delta.maxCreated);
+        }
+
+        /**
+         * 陷阱分类掩码的位序：第 {@code i} 位对应 {@code pitfallCategories().get(i)}。
+         */
+        public List<String> pitfallCategories() {
+            return pitfallCategories;
+        }
+
+        public void forEach(RowVisitor visitor) {
+            for (int row = 0; row < base.size(); row++) {
+                if (!baseDeleted.get(row)) {
+                    visitor.visit(base, row);
+                }
+            }
+            for (int row = 0; row < delta.size(); row++) {
+                visitor.visit(delta, row);
+            }
+        }
+
+        /**
+         * 只走访带有 {@code tagId} 的行，经由倒排表直接定位，不扫描其它问题。
+         */
+        public void forEachTagged(int tagId, RowVisitor visitor) {
+            int[] baseRows = base.postings(tagId);
+            if (baseRows != null) {
+                int from = base.postingStart(tagId);
+                int to = base.postingEnd(tagId);
+                for (int p = from; p < to; p++) {
+                    int row = baseRows[p];
+                    if (!baseDeleted.get(row)) {
+                        visitor.visit(base, row);
+                    }
+                }
+            }
+            int[] deltaRows = delta.postings(tagId);
+            if (deltaRows != null) {
+                int from = delta.postingStart(tagId);
+                int to = delta.postingEnd(tagId);
+                for (int p = from; p < to; p++) {
+                    visitor.visit(delta, deltaRows[p]);
+                }
+            }
+        }
+
+        /**
+         * 走访带有任一 {@code tagIds} 的行，每行只走访一次：第 {@code k} 个标签的倒排表中，
+         * 同时带有前面任一标签的行已走访过，会被略过。
+         */
+        public void forEachTaggedAny(int[] tagIds, RowVisitor visitor) {
+            for (int k = 0; k < tagIds.length; k++) {
+                int index = k;
+                forEachTagged(tagIds[k], (segment, row) -> {
+                    for (int earlier = 0; earlier < index; earlier++) {
+                        if (segment.hasTag(row, tagIds[earlier])) {
+                            return;
+                        }
+                    }
+                    visitor.visit(segment, row);
+                });
+            }
+        }
+
+        private Snapshot compact() {
+            SegmentBuilder merged = new SegmentBuilder(pitfallCategories);
+            int i = 0;
+            int j = 0;
+            while (i < base.size() || j < delta.size()) {
+                if (i < base.size() && baseDeleted.get(i)) {
+                    i++;
+                } else if (j == delta.size() || (i < base.size() && base.ids[i] < delta.ids[j])) {
+                    merged.copy(base, i++);
+                } else {
+                    merged.copy(delta, j++);
+                }
+            }
+            return new Snapshot(merged.build(), SegmentBuilder.empty(), new BitSet(), pitfallCategories,
+                    pitfallHash, pitfallOverflow);
+        }
+    }
+
+    /**
+     * 一段按问题 ID 排序、建立后不再改变的列数据。
+     */
+    public static final class Segment {
+
+        private final int size;
+        private final long[] ids;
+        private final long[] created;
+        private final int[] score;
+        private final int[] views;
+        private final int[] answers;
+        private final int[] reputation;
+        private final int[] codeBlocks;
+        private final int[] firstAnswerMinutes;
+        private final int[] acceptedScore;
+        private final byte[] flags;
+        private final long[] pitfallMask;
+        private final int[] tagOffsets;
+        private final int[] tagIds;
+        private final int[] postingTags;
+        private final int[] postingOffsets;
+        private final int[] postingRows;
+        private final long minCreated;
+        private final long maxCreated;
+
+        private Segment(int size, long[] ids, long[] created, int[] score, int[] views, int[] answers,
+                int[] reputation, int[] codeBlocks, int[] firstAnswerMinutes, int[] acceptedScore, byte[] flags,
+                long[] pitfallMask, int[] tagOffsets, int[] tagIds) {
+            this(size, ids, created, score, views, answers, reputation, codeBlocks, firstAnswerMinutes,
+                    acceptedScore, flags, pitfallMask, tagOffsets, tagIds, buildPostings(size, tagOffsets, tagIds));
+        }
+
+        private Segment(int size, long[] ids, long[] created, int[] score, int[] views, int[] answers,
+                int[] reputation, int[] codeBlocks, int[] firstAnswerMinutes, int[] acceptedScore, byte[] flags,
+                long[] pitfallMask, int[] tagOffsets, int[] tagIds, int[][] postings) {
+            this.size = size;
+            this.ids = ids;
+            this.created = created;
+            this.score = score;
+            this.views = views;
+            this.answers = answers;
+            this.reputation = reputation;
+            this.codeBlocks = codeBlocks;
+            this.firstAnswerMinutes = firstAnswerMinutes;
+            this.acceptedScore = acceptedScore;
+            this.flags = flags;
+            this.pitfallMask = pitfallMask;
+            this.tagOffsets = tagOffsets;
+            this.tagIds = tagIds;
+            this.postingTags = postings[0];
+            this.postingOffsets = postings[1];
+            this.postingRows = postings[2];
+            long min = Long.MAX_VALUE;
+            long max = NO_DATE;
+            for (int row = 0; row < size; row++) {
+                if (created[row] != NO_DATE) {
+                    min = Math.min(min, created[row]);
+                    max = Math.max(max, created[row]);
+                }
+            }
+            this.minCreated = min;
+            this.maxCreated = max;
+        }
+
+        /**
+         * 倒排表：先在以标签 ID 为下标的数组中数出每个标签的行数，再按标签 ID 递增依次填入行号。
+         *
+         * @return {@code {postingTags, postingOffsets, postingRows}}
+         */
+        private static int[][] buildPostings(int size, int[] tagOffsets, int[] tagIds) {
+            int assignments = tagOffsets[size];
+            int maxTag = -1;
+            for (int i = 0; i < assignments; i++) {
+                maxTag = Math.max(maxTag, tagIds[i]);
+            }
+            int[] cursor = new int[maxTag + 1];
+            for (int i = 0; i < assignments; i++) {
+                cursor[tagIds[i]]++;
+            }
+            int distinct = 0;
+            for (int count : cursor) {
+                if (count > 0) {
+                    distinct++;
+                }
+            }
+            int[] postingTags = new int[distinct];
+            int[] postingOffsets = new int[distinct + 1];
+            int k = 0;
+            for (int tag = 0; tag <= maxTag; tag++) {
+                int count = cursor[tag];
+                if (count > 0) {
+                    postingTags[k] = tag;
+                    postingOffsets[k + 1] = postingOffsets[k] + count;
+                    // 之后改作该标签的下一个写入位置
+                    cursor[tag] = postingOffsets[k];
+                    k++;
+                }
+            }
+            int[] postingRows = new int[assignments];
+            for (int row = 0; row < size; row++) {
+                for (int i = tagOffsets[row]; i < tagOffsets[row + 1]; i++) {
+                    postingRows[cursor[tagIds[i]]++] = row;
+                }
+            }
+            return new int[][]{postingTags, postingOffsets, postingRows};
+        }
+
+        /**
+         * 只换掉陷阱分类掩码，其它列与倒排表沿用原来的数组。
+         */
+        private Segment withPitfalls(long[] masks) {
+            return new Segment(size, ids, created, score, views, answers, reputation, codeBlocks,
+                    firstAnswerMinutes, acceptedScore, flags, masks, tagOffsets, tagIds,
+                    new int[][]{postingTags, postingOffsets, postingRows});
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long id(int row) {
+            return ids[row];
+        }
+
+        /** 创建时间的 UTC 纪元秒，无创建时间时为 {@link #NO_DATE}。 */
+        public long created(int row) {
+            return created[row];
+        }
+
+        public int score(int row) {
+            return score[row];
+        }
+
+        public int views(int row) {
+            return views[row];
+        }
+
+        public int answers(int row) {
+            return answers[row];
+        }
+
+        public int reputation(int row) {
+            return reputation[row];
+        }
+
+        public int codeBlocks(int row) {
+            return codeBlocks[row];
+        }
+
+        /** 问题创建到第一个回答的分钟数（向零取整），没有时为 {@link #NO_ANSWER}。 */
+        public int firstAnswerMinutes(int row) {
+            return firstAnswerMinutes[row];
+        }
+
+        public int acceptedScore(int row) {
+            return acceptedScore[row];
+        }
+
+        public boolean hasFlag(int row, int flag) {
+            return (flags[row] & flag) != 0;
+        }
+
+        public long pitfallMask(int row) {
+            return pitfallMask[row];
+        }
+
+        /** 该行标签在 {@link #tagIdAt(int)} 中的起点（含）。 */
+        public int tagStart(int row) {
+            return tagOffsets[row];
+        }
+
+        /** 该行标签在 {@link #tagIdAt(int)} 中的终点（不含）。 */
+        public int tagEnd(int row) {
+            return tagOffsets[row + 1];
+        }
+
+        public int tagIdAt(int index) {
+            return tagIds[index];
+        }
+
+        public boolean hasTag(int row, int tagId) {
+            return Arrays.binarySearch(tagIds, tagOffsets[row], tagOffsets[row + 1], tagId) >= 0;
+        }
+
+        private int tagIdLimit() {
+            return postingTags.length == 0 ? 0 : postingTags[postingTags.length - 1] + 1;
+        }
+
+        private int find(long id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        private int[] postings(int tagId) {
+            return Arrays.binarySearch(postingTags, tagId) >= 0 ? postingRows : null;
+        }
+
+        private int postingStart(int tagId) {
+            return postingOffsets[Arrays.binarySearch(postingTags, tagId)];
+        }
+
+        private int postingEnd(int tagId) {
+            return postingOffsets[Arrays.binarySearch(postingTags, tagId) + 1];
+        }
+    }
+
+    /**
+     * 逐行累积列数据，容量不足时倍增。
+     */
+    private static final class SegmentBuilder {
+
+        private int size;
+        private long[] ids = new long[16];
+        private long[] created = new long[16];
+        private int[] score = new int[16];
+        private int[] views = new int[16];
+        private int[] answers = new int[16];
+        private int[] reputation = new int[16];
+        private int[] codeBlocks = new int[16];
+        private int[] firstAnswerMinutes = new int[16];
+        private int[] acceptedScore = new int[16];
+        private byte[] flags = new byte[16];
+        private long[] pitfallMask = new long[16];
+        private int[] tagOffsets = new int[17];
+        private int[] tagIds = new int[64];
+        private int tagCount;
+        private final List<String> categories;
+        private final Map<String, Integer> categoryIndexes = new HashMap<>();
+        private boolean categoryOverflow;
+
+        private SegmentBuilder(List<String> categories) {
+            this.categories = new ArrayList<>(categories);
+            for (int i = 0; i < categories.size(); i++) {
+                categoryIndexes.put(categories.get(i), i);
+            }
+        }
+
+        private static Segment empty() {
+            return new SegmentBuilder(List.of()).build();
+        }
+
+        private List<String> categories() {
+            return List.copyOf(categories);
+        }
+
+        private boolean categoryOverflow() {
+            return categoryOverflow;
+        }
+
+        private void add(ResultSet rs) throws SQLException {
+            int row = nextRow();
+            ids[row] = rs.getLong("id");
+            Timestamp creation = rs.getTimestamp("creation_date");
+            created[row] = creation == null ? NO_DATE : creation.toInstant().getEpochSecond();
+            score[row] = rs.getInt("score");
+            views[row] = rs.getInt("view_count");
+            int answerCount = rs.getInt("answer_count");
+            int rowFlags = 0;
+            if (rs.wasNull()) {
+                answerCount = rs.getInt("answer_rows");
+                rowFlags |= FLAG_ANSWER_COUNT_NULL;
+            }
+            answers[row] = answerCount;
+            reputation[row] = rs.getInt("owner_reputation");
+            codeBlocks[row] = rs.getInt("code_blocks");
+            long minutes = rs.getLong("first_answer_minutes");
+            firstAnswerMinutes[row] = rs.wasNull() ? NO_ANSWER : (int) minutes;
+            if (rs.getBoolean("has_accepted_id")) {
+                rowFlags |= FLAG_HAS_ACCEPTED_ID;
+            }
+            if (rs.getBoolean("accepted_found")) {
+                rowFlags |= FLAG_ACCEPTED_FOUND;
+                acceptedScore[row] = rs.getInt("accepted_score");
+                if (!rs.wasNull()) {
+                    rowFlags |= FLAG_ACCEPTED_SCORE;
+                }
+            }
+            flags[row] = (byte) rowFlags;
+
+            Object[] tags = readArray(rs.getArray("tag_ids"));
+            ensureTagCapacity(tags.length);
+            for (Object tag : tags) {
+                tagIds[tagCount++] = Math.toIntExact(((Number) tag).longValue());
+            }
+            tagOffsets[row + 1] = tagCount;
+
+            long mask = 0;
+            for (Object value : readArray(rs.getArray("pitfalls"))) {
+                String category = (String) value;
+                Integer index = categoryIndexes.get(category);
+                if (index == null) {
+                    categories.add(category);
+                    index = categories.size() - 1;
+                    categoryIndexes.put(category, index);
+                }
+                if (index < MAX_PITFALL_CATEGORIES) {
+                    mask |= 1L << index;
+                } else {
+                    categoryOverflow = true;
+                }
+            }
+            pitfallMask[row] = mask;
+        }
+
+        private void copy(Segment source, int sourceRow) {
+            int row = nextRow();
+            ids[row] = source.ids[sourceRow];
+            created[row] = source.created[sourceRow];
+            score[row] = source.score[sourceRow];
+            views[row] = source.views[sourceRow];
+            answers[row] = source.answers[sourceRow];
+            reputation[row] = source.reputation[sourceRow];
+            codeBlocks[row] = source.codeBlocks[sourceRow];
+            firstAnswerMinutes[row] = source.firstAnswerMinutes[sourceRow];
+            acceptedScore[row] = source.acceptedScore[sourceRow];
+            flags[row] = source.flags[sourceRow];
+            pitfallMask[row] = source.pitfallMask[sourceRow];
+            int from = source.tagOffsets[sourceRow];
+            int length = source.tagOffsets[sourceRow + 1] - from;
+            ensureTagCapacity(length);
+            System.arraycopy(source.tagIds, from, tagIds, tagCount, length);
+            tagCount += length;
+            tagOffsets[row + 1] = tagCount;
+        }
+
+        private int nextRow() {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                created = Arrays.copyOf(created, capacity);
+                score = Arrays.copyOf(score, capacity);
+                views = Arrays.copyOf(views, capacity);
+                answers = Arrays.copyOf(answers, capacity);
+                reputation = Arrays.copyOf(reputation, capacity);
+                codeBlocks = Arrays.copyOf(codeBlocks, capacity);
+                firstAnswerMinutes = Arrays.copyOf(firstAnswerMinutes, capacity);
+                acceptedScore = Arrays.copyOf(acceptedScore, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+                pitfallMask = Arrays.copyOf(pitfallMask, capacity);
+                tagOffsets = Arrays.copyOf(tagOffsets, capacity + 1);
+            }
+            return size++;
+        }
+
+        private void ensureTagCapacity(int additional) {
+            if (tagCount + additional > tagIds.length) {
+                tagIds = Arrays.copyOf(tagIds, Math.max(tagIds.length * 2, tagCount + additional));
+            }
+        }
+
+        private static Object[] readArray(Array array) throws SQLException {
+            return array == null ? new Object[0] : (Object[]) array.getArray();
+        }
+
+        private Segment build() {
+            return new Segment(size,
+                    Arrays.copyOf(ids, size),
+                    Arrays.copyOf(created, size),
+                    Arrays.copyOf(score, size),
+                    Arrays.copyOf(views, size),
+                    Arrays.copyOf(answers, size),
+                    Arrays.copyOf(reputation, size),
+                    Arrays.copyOf(codeBlocks, size),
+                    Arrays.copyOf(firstAnswerMinutes, size),
+                    Arrays.copyOf(acceptedScore, size),
+                    Arrays.copyOf(flags, size),
+                    Arrays.copyOf(pitfallMask, size),
+                    Arrays.copyOf(tagOffsets, size + 1),
+                    Arrays.copyOf(tagIds, tagCount));
+        }
+    }
+}
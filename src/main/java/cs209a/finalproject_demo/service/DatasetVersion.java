@@ -0,0 +1,42 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.importer.QuestionsImportedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据集版本号：每个匯入批次提交后递增，分析结果缓存与 ETag 以它判断结果是否过期。
+ * 版本号只存在于进程内，{@link #epoch()} 区分不同次启动，避免重启后出现相同的 ETag。
+ */
+@Component
+public class DatasetVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    public DatasetVersion(MeterRegistry meterRegistry) {
+        Gauge.builder("analytics.dataset.version", version, AtomicLong::get)
+                .description("匯入批次提交后递增的数据集版本")
+                .register(meterRegistry);
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    public String epoch() {
+        return epoch;
+    }
+
+    /**
+     * 批次交易提交后才递增，确保拿到新版本号的请求一定看得到这批数据。
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQuestionsImported(QuestionsImportedEvent event) {
+        version.incrementAndGet();
+    }
+}
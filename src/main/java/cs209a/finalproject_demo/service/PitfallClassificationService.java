@@ -0,0 +1,193 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.importer.QuestionsImportedEvent;
+import cs209a.finalproject_demo.importer.StackOverflowThreadMapper.MappedThread;
+import cs209a.finalproject_demo.model.PitfallTaxonomyState;
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.repository.PitfallTaxonomyStateRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 维护 {@code question_pitfalls}：匯入批次在同一交易内分类新增或更新的问题；
+ * 分类规则改变（启动时杂凑值与已保存的不同，或运行期经 {@link PitfallTaxonomyService} 修改）时，
+ * 在背景以 keyset 分页回填全部历史问题；较新的规则换上后，旧版本的回填会自行中止。
+ * 回填完成前 {@link #isCurrent()} 为 {@code false}，调用方应退回即时计算。
+ */
+@Service
+public class PitfallClassificationService {
+
+    private static final Logger log = LoggerFactory.getLogger(PitfallClassificationService.class);
+
+    private static final int BACKFILL_PAGE_SIZE = 1000;
+
+    private static final String SELECT_PAGE = """
+            SELECT id, title, body FROM questions
+            WHERE id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String DELETE_FOR_QUESTIONS = "DELETE FROM question_pitfalls WHERE question_id = ANY(?)";
+
+    private static final String INSERT_PITFALL = """
+            INSERT INTO question_pitfalls (question_id, category)
+            VALUES (?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final PitfallClassifier classifier;
+    private final PitfallTaxonomyStateRepository stateRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pitfall-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile String classifiedHash;
+
+    public PitfallClassificationService(
+            PitfallClassifier classifier,
+            PitfallTaxonomyStateRepository stateRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate) {
+        this.classifier = classifier;
+        this.stateRepository = stateRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 已保存的分类是否与目前的分类规则一致。
+     */
+    public boolean isCurrent() {
+        return classifier.taxonomyHash().equals(classifiedHash);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void checkTaxonomy() {
+        PitfallClassifier.Taxonomy taxonomy = classifier.current();
+        boolean upToDate = stateRepository.findById(PitfallTaxonomyState.SINGLETON_ID)
+                .map(state -> taxonomy.hash().equals(state.getTaxonomyHash()))
+                .orElse(false);
+        if (upToDate) {
+            classifiedHash = taxonomy.hash();
+            return;
+        }
+        log.info("多线程陷阱分类规则已变更，开始在背景回填 question_pitfalls。");
+        executor.execute(() -> backfill(taxonomy));
+    }
+
+    /**
+     * 运行期换上新的分类规则后调用，以目前生效的版本重新回填。
+     */
+    public void reclassify() {
+        PitfallClassifier.Taxonomy taxonomy = classifier.current();
+        log.info("开始以分类规则版本 {} 在背景回填 question_pitfalls。", taxonomy.version());
+        executor.execute(() -> backfill(taxonomy));
+    }
+
+    /**
+     * 与匯入批次同一交易执行：分类失败会让整批回滚，分类表不会与题目数据脱节。
+     */
+    @EventListener
+    public void onQuestionsImported(QuestionsImportedEvent event) {
+        if (!event.updated().isEmpty()) {
+            deleteFor(event.updated().stream().map(thread -> thread.question().getId()).toArray(Long[]::new));
+        }
+        PitfallClassifier.Taxonomy taxonomy = classifier.current();
+        List<Object[]> rows = new ArrayList<>();
+        for (MappedThread thread : event.threads()) {
+            Question question = thread.question();
+            for (String category : taxonomy.classify(question.getTitle(), question.getBody())) {
+                rows.add(new Object[] { question.getId(), category });
+            }
+        }
+        insert(rows);
+    }
+
+    private void backfill(PitfallClassifier.Taxonomy taxonomy) {
+        long start = System.nanoTime();
+        long lastId = Long.MIN_VALUE;
+        long classified = 0;
+        try {
+            while (true) {
+                if (classifier.current() != taxonomy) {
+                    log.info("分类规则版本 {} 已被取代，停止其回填。", taxonomy.version());
+                    return;
+                }
+                List<Object[]> page = jdbcTemplate.query(SELECT_PAGE,
+                        (rs, rowNum) -> new Object[] { rs.getLong(1), rs.getString(2), rs.getString(3) },
+                        lastId, BACKFILL_PAGE_SIZE);
+                if (page.isEmpty()) {
+                    break;
+                }
+                Long[] ids = new Long[page.size()];
+                List<Object[]> rows = new ArrayList<>();
+                for (int i = 0; i < page.size(); i++) {
+                    Object[] question = page.get(i);
+                    ids[i] = (Long) question[0];
+                    for (String category : taxonomy.classify((String) question[1], (String) question[2])) {
+                        rows.add(new Object[] { question[0], category });
+                    }
+                }
+                transactionTemplate.executeWithoutResult(status -> {
+                    deleteFor(ids);
+                    insert(rows);
+                });
+                classified += page.size();
+                lastId = ids[ids.length - 1];
+            }
+
+            long total = classified;
+            transactionTemplate.executeWithoutResult(status -> {
+                PitfallTaxonomyState state = stateRepository.findById(PitfallTaxonomyState.SINGLETON_ID)
+                        .orElseGet(PitfallTaxonomyState::new);
+                state.setId(PitfallTaxonomyState.SINGLETON_ID);
+                state.setTaxonomyHash(taxonomy.hash());
+                state.setClassifiedQuestions(total);
+                state.setClassifiedAt(Instant.now());
+                stateRepository.save(state);
+            });
+            classifiedHash = taxonomy.hash();
+            log.info("question_pitfalls 回填完成，共分类 {} 个问题，耗时 {} ms。",
+                    classified, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("回填 question_pitfalls 失败，已处理 {} 个问题", classified, e);
+        }
+    }
+
+    private void deleteFor(Long[] questionIds) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_FOR_QUESTIONS);
+            statement.setArray(1, connection.createArrayOf("bigint", questionIds));
+            return statement;
+        });
+    }
+
+    private void insert(List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PITFALL, rows);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,113 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.util.MultiPatternMatcher;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 判断一段标题+正文命中哪些陷阱分类。所有分类的正则合并成一个自动机，每个问题只扫描一次全文。
+ * <p>
+ * 已编译的规则是不可变的 {@link Taxonomy} 快照，由 {@link #install} 在调用端线程编译完成后原子替换；
+ * 读取端只读取目前的引用，进行中的请求继续使用取得时的版本，热路径上从不编译正则也不加锁。
+ * 启动时先以 {@link AnalysisService#MULTITHREADING_PITFALL_KEYWORDS} 编译，
+ * 随后由 {@link PitfallTaxonomyService} 换成数据库中的版本。
+ */
+@Component
+public class PitfallClassifier {
+
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicReference<Taxonomy> current;
+
+    public PitfallClassifier() {
+        this.current = new AtomicReference<>(compile(AnalysisService.MULTITHREADING_PITFALL_KEYWORDS));
+    }
+
+    /**
+     * 目前生效的规则。需要在多次调用间保持一致（例如分类名称与下标的对应）时，应先取得快照再使用。
+     */
+    public Taxonomy current() {
+        return current.get();
+    }
+
+    public List<String> categories() {
+        return current().categories();
+    }
+
+    /**
+     * 分类规则的 SHA-256，用来判断已保存的分类结果是否过期。
+     */
+    public String taxonomyHash() {
+        return current().hash();
+    }
+
+    public List<String> classify(String title, String body) {
+        return current().classify(title, body);
+    }
+
+    /**
+     * 编译并换上新的规则；内容与目前版本相同时保持原版本不变。
+     */
+    public synchronized Taxonomy install(Map<String, List<String>> keywords) {
+        Taxonomy active = current.get();
+        if (active.hash().equals(hash(keywords))) {
+            return active;
+        }
+        Taxonomy compiled = compile(keywords);
+        current.set(compiled);
+        return compiled;
+    }
+
+    private Taxonomy compile(Map<String, List<String>> keywords) {
+        return new Taxonomy(
+                versions.incrementAndGet(),
+                List.copyOf(keywords.keySet()),
+                hash(keywords),
+                MultiPatternMatcher.compile(List.copyOf(keywords.values())));
+    }
+
+    private static String hash(Map<String, List<String>> keywords) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            keywords.forEach((category, patterns) -> {
+                digest.update(category.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                for (String pattern : patterns) {
+                    digest.update(pattern.getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) 1);
+                }
+            });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM 不支援 SHA-256", e);
+        }
+    }
+
+    /**
+     * 某一版已编译的分类规则，可被任意多个线程同时使用。
+     */
+    public record Taxonomy(long version, List<String> categories, String hash, MultiPatternMatcher matcher) {
+
+        public List<String> classify(String title, String body) {
+            String searchable = ((title == null ? "" : title) + " " + (body == null ? "" : body)).trim();
+            if (searchable.isEmpty()) {
+                return List.of();
+            }
+            BitSet hits = matcher.match(searchable);
+            List<String> matched = new ArrayList<>(hits.cardinality());
+            for (int category = hits.nextSetBit(0); category >= 0; category = hits.nextSetBit(category + 1)) {
+                matched.add(categories.get(category));
+            }
+            return matched;
+        }
+    }
+}
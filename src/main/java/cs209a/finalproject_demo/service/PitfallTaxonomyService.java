@@ -0,0 +1,174 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.PitfallCategory;
+import cs209a.finalproject_demo.repository.PitfallCategoryRepository;
+import cs209a.finalproject_demo.service.dto.PitfallCategoryRequest;
+import cs209a.finalproject_demo.service.dto.PitfallCategoryResponse;
+import cs209a.finalproject_demo.service.dto.PitfallTaxonomyResponse;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 维护保存在 {@code pitfall_categories} 的陷阱分类规则。每次增删改提交后重新编译并原子换上
+ * {@link PitfallClassifier} 的新版本，再通知 {@link PitfallClassificationService} 在背景回填，不需要重新部署。
+ * 修改操作彼此串行，读取端不受影响。
+ */
+@Service
+public class PitfallTaxonomyService {
+
+    private static final Logger log = LoggerFactory.getLogger(PitfallTaxonomyService.class);
+
+    private static final int MAX_NAME_LENGTH = 128;
+
+    private final PitfallCategoryRepository categoryRepository;
+    private final PitfallClassifier classifier;
+    private final PitfallClassificationService classificationService;
+    private final TransactionTemplate transactionTemplate;
+
+    public PitfallTaxonomyService(
+            PitfallCategoryRepository categoryRepository,
+            PitfallClassifier classifier,
+            PitfallClassificationService classificationService,
+            TransactionTemplate transactionTemplate) {
+        this.categoryRepository = categoryRepository;
+        this.classifier = classifier;
+        this.classificationService = classificationService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * 首次启动时写入默认分类，之后以数据库内容为准。启动时的回填由
+     * {@link PitfallClassificationService} 在应用就绪后依杂凑值判断，这里不重复触发。
+     */
+    @PostConstruct
+    synchronized void load() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (categoryRepository.count() == 0) {
+                AnalysisService.MULTITHREADING_PITFALL_KEYWORDS.forEach((name, patterns) ->
+                        categoryRepository.save(new PitfallCategory(name, patterns)));
+                log.info("已写入 {} 个默认多线程陷阱分类。", AnalysisService.MULTITHREADING_PITFALL_KEYWORDS.size());
+            }
+        });
+        classifier.install(loadKeywords());
+    }
+
+    public PitfallTaxonomyResponse describe() {
+        PitfallClassifier.Taxonomy taxonomy = classifier.current();
+        List<PitfallCategoryResponse> categories = transactionTemplate.execute(status ->
+                categoryRepository.findAllByOrderByIdAsc().stream().map(this::toResponse).toList());
+        return new PitfallTaxonomyResponse(
+                taxonomy.version(),
+                taxonomy.hash(),
+                classificationService.isCurrent(),
+                categories);
+    }
+
+    public synchronized PitfallCategoryResponse create(PitfallCategoryRequest request) {
+        String name = validateName(request);
+        List<String> patterns = validatePatterns(request);
+        PitfallCategoryResponse created = transactionTemplate.execute(status -> {
+            if (categoryRepository.existsByNameIgnoreCase(name)) {
+                throw new IllegalArgumentException("分类已存在：" + name);
+            }
+            return toResponse(categoryRepository.save(new PitfallCategory(name, patterns)));
+        });
+        taxonomyChanged();
+        return created;
+    }
+
+    public synchronized Optional<PitfallCategoryResponse> update(long id, PitfallCategoryRequest request) {
+        String name = validateName(request);
+        List<String> patterns = validatePatterns(request);
+        Optional<PitfallCategoryResponse> updated = transactionTemplate.execute(status -> {
+            if (categoryRepository.existsByNameIgnoreCaseAndIdNot(name, id)) {
+                throw new IllegalArgumentException("分类已存在：" + name);
+            }
+            return categoryRepository.findById(id).map(category -> {
+                category.setName(name);
+                category.getPatterns().clear();
+                category.getPatterns().addAll(patterns);
+                return toResponse(categoryRepository.save(category));
+            });
+        });
+        if (updated.isPresent()) {
+            taxonomyChanged();
+        }
+        return updated;
+    }
+
+    public synchronized boolean delete(long id) {
+        boolean deleted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (!categoryRepository.existsById(id)) {
+                return false;
+            }
+            categoryRepository.deleteById(id);
+            return true;
+        }));
+        if (deleted) {
+            taxonomyChanged();
+        }
+        return deleted;
+    }
+
+    private void taxonomyChanged() {
+        PitfallClassifier.Taxonomy previous = classifier.current();
+        PitfallClassifier.Taxonomy installed = classifier.install(loadKeywords());
+        if (installed != previous) {
+            log.info("多线程陷阱分类规则已更新为版本 {}（{} 类）。", installed.version(), installed.categories().size());
+            classificationService.reclassify();
+        }
+    }
+
+    private Map<String, List<String>> loadKeywords() {
+        return transactionTemplate.execute(status -> {
+            Map<String, List<String>> keywords = new LinkedHashMap<>();
+            for (PitfallCategory category : categoryRepository.findAllByOrderByIdAsc()) {
+                keywords.put(category.getName(), List.copyOf(category.getPatterns()));
+            }
+            return keywords;
+        });
+    }
+
+    private PitfallCategoryResponse toResponse(PitfallCategory category) {
+        return new PitfallCategoryResponse(category.getId(), category.getName(), List.copyOf(category.getPatterns()));
+    }
+
+    private String validateName(PitfallCategoryRequest request) {
+        String name = request == null || request.name() == null ? "" : request.name().strip();
+        if (name.isEmpty() || name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException(String.format("name 不能为空且不能超过 %d 个字符", MAX_NAME_LENGTH));
+        }
+        return name;
+    }
+
+    private List<String> validatePatterns(PitfallCategoryRequest request) {
+        List<String> patterns = request.patterns() == null ? List.of()
+                : request.patterns().stream()
+                        .filter(Objects::nonNull)
+                        .filter(pattern -> !pattern.isBlank())
+                        .distinct()
+                        .toList();
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException("patterns 至少需要一个正则");
+        }
+        for (String pattern : patterns) {
+            try {
+                Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("无效的正则 " + pattern + "：" + e.getDescription());
+            }
+        }
+        return patterns;
+    }
+}
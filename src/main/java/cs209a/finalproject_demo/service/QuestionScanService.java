@@ -0,0 +1,139 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Question;
+import cs209a.finalproject_demo.repository.QuestionRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * 以 keyset 分页串流扫描问题实体（含回答与标签），每页载入后立即从持久化上下文分离，
+ * 再交给 fork-join 池并行处理。堆上最多同时存在两页（处理中的一页与正在载入的下一页），
+ * 与问题总数无关。
+ */
+@Service
+public class QuestionScanService {
+
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private final QuestionRepository questionRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ForkJoinPool pool;
+
+    @Value("${app.analysis.scan-page-size:500}")
+    private int pageSize;
+
+    public QuestionScanService(
+            QuestionRepository questionRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.analysis.scan-parallelism:0}") int parallelism) {
+        this.questionRepository = questionRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 扫描带有任一指定标签（须为小写）的问题，返回合并后的累加结果。
+     */
+    public <A extends ScanAccumulator<Question, A>> A scan(List<String> tagNames, Supplier<A> accumulatorFactory) {
+        A result = accumulatorFactory.get();
+        if (tagNames.isEmpty()) {
+            return result;
+        }
+        long afterId = Long.MIN_VALUE;
+        ForkJoinTask<A> inFlight = null;
+        try {
+            while (true) {
+                List<Question> page = loadPage(tagNames, afterId);
+                if (inFlight != null) {
+                    result.merge(inFlight.get());
+                    inFlight = null;
+                }
+                if (page.isEmpty()) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+                inFlight = pool.submit(new PageTask<>(page, 0, page.size(), accumulatorFactory));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("扫描问题时被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (inFlight != null) {
+                inFlight.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    private List<Question> loadPage(List<String> tagNames, long afterId) {
+        return readOnlyTransaction.execute(status -> {
+            List<Long> ids = questionRepository.findIdPageByTagNames(tagNames, afterId, PageRequest.ofSize(pageSize));
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            List<Question> questions = questionRepository.findWithAnswersAndTagsByIdIn(ids);
+            // 回答与标签已由 entity graph 一并载入，分离后可在其他线程读取，也不会在外层交易中累积
+            entityManager.clear();
+            return questions;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static final class PageTask<A extends ScanAccumulator<Question, A>> extends RecursiveTask<A> {
+
+        private final List<Question> page;
+        private final int from;
+        private final int to;
+        private final Supplier<A> accumulatorFactory;
+
+        private PageTask(List<Question> page, int from, int to, Supplier<A> accumulatorFactory) {
+            this.page = page;
+            this.from = from;
+            this.to = to;
+            this.accumulatorFactory = accumulatorFactory;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                A accumulator = accumulatorFactory.get();
+                for (int i = from; i < to; i++) {
+                    accumulator.accept(page.get(i));
+                }
+                return accumulator;
+            }
+            int middle = (from + to) >>> 1;
+            PageTask<A> left = new PageTask<>(page, from, middle, accumulatorFactory);
+            left.fork();
+            A right = new PageTask<>(page, middle, to, accumulatorFactory).compute();
+            A merged = left.join();
+            merged.merge(right);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.service.dto.QuestionSearchHit;
+import cs209a.finalproject_demo.service.dto.QuestionSearchResponse;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 以 {@link QuestionSearchSchema} 建立的 {@code search_vector} GIN 索引检索问题标题与正文。
+ * 查询字串使用 {@code websearch_to_tsquery} 语法（支持引号词组、{@code OR} 与 {@code -排除}）。
+ * 排序方式：
+ * <ul>
+ *     <li>{@code relevance}（默认）：按 {@code ts_rank_cd} 降序，相同分数再按 ID 降序；</li>
+ *     <li>{@code newest}：按创建时间降序，可直接利用 {@code (creation_date, id)} 索引。</li>
+ * </ul>
+ * 两种排序都以 keyset 游标翻页，不使用 OFFSET，翻到后面的页也不会变慢。
+ */
+@Service
+public class QuestionSearchService {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_QUERY_LENGTH = 256;
+
+    private static final String SORT_RELEVANCE = "relevance";
+    private static final String SORT_NEWEST = "newest";
+
+    private static final String SELECT_HITS = """
+            SELECT
+                m.id,
+                m.rank,
+                q.title,
+                q.score,
+                q.answer_count,
+                q.creation_date,
+                ts_headline('english',
+                        regexp_replace(coalesce(q.body, ''), '<[^>]+>', ' ', 'g'),
+                        query.tsq,
+                        'MaxFragments=2, MinWords=5, MaxWords=20') AS snippet,
+                ARRAY(
+                    SELECT t.name FROM question_tags qt
+                    JOIN tags t ON t.id = qt.tag_id
+                    WHERE qt.question_id = m.id
+                    ORDER BY t.name
+                ) AS tag_names
+            FROM (%s) m
+            JOIN questions q ON q.id = m.id
+            CROSS JOIN (SELECT websearch_to_tsquery('english', :q) AS tsq) query
+            ORDER BY %s
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TagDictionaryService tagDictionary;
+
+    public QuestionSearchService(NamedParameterJdbcTemplate jdbcTemplate, TagDictionaryService tagDictionary) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tagDictionary = tagDictionary;
+    }
+
+    public QuestionSearchResponse search(
+            String query,
+            List<String> tags,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String sort,
+            Integer limit,
+            String cursor) {
+        String text = normalizeQuery(query);
+        String resolvedSort = normalizeSort(sort);
+        int pageSize = resolveLimit(limit);
+        List<String> tagFilter = normalizeTags(tags);
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor, resolvedSort);
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("q", text)
+                .addValue("limit", pageSize + 1);
+        StringBuilder matches = new StringBuilder();
+        boolean relevance = SORT_RELEVANCE.equals(resolvedSort);
+        matches.append("""
+                SELECT q.id, ts_rank_cd(q.search_vector, query.tsq) AS rank, q.creation_date
+                FROM questions q
+                CROSS JOIN (SELECT websearch_to_tsquery('english', :q) AS tsq) query
+                WHERE q.search_vector @@ query.tsq
+                """);
+        if (fromDate != null) {
+            matches.append(" AND q.creation_date >= :from_ts");
+            params.addValue("from_ts", Timestamp.from(fromDate.atStartOfDay(ZoneOffset.UTC).toInstant()));
+        }
+        if (toDate != null) {
+            matches.append(" AND q.creation_date < :to_ts");
+            params.addValue("to_ts", Timestamp.from(toDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()));
+        }
+        if (!tagFilter.isEmpty()) {
+            // 须同时带有所有指定标签
+            matches.append("""
+                     AND q.id IN (
+                        SELECT qt.question_id FROM question_tags qt
+                        JOIN tags t ON t.id = qt.tag_id
+                        WHERE t.name IN (:tags)
+                        GROUP BY qt.question_id
+                        HAVING COUNT(*) = :tag_count)
+                    """);
+            params.addValue("tags", tagFilter).addValue("tag_count", tagFilter.size());
+        }
+        if (!relevance) {
+            matches.append(" AND q.creation_date IS NOT NULL");
+            if (after != null) {
+                matches.append(" AND (q.creation_date, q.id) < (:after_ts, :after_id)");
+                params.addValue("after_ts", Timestamp.from(Instant.EPOCH.plus(after.sortKey(), ChronoUnit.MICROS)));
+            }
+            matches.append(" ORDER BY q.creation_date DESC, q.id DESC LIMIT :limit");
+        }
+
+        String ranked = matches.toString();
+        if (relevance) {
+            ranked = "SELECT * FROM (" + ranked + ") r";
+            if (after != null) {
+                ranked += " WHERE r.rank < CAST(:after_rank AS real)"
+                        + " OR (r.rank = CAST(:after_rank AS real) AND r.id < :after_id)";
+                params.addValue("after_rank", Float.intBitsToFloat((int) after.sortKey()));
+            }
+            ranked += " ORDER BY r.rank DESC, r.id DESC LIMIT :limit";
+        }
+        if (after != null) {
+            params.addValue("after_id", after.id());
+        }
+
+        String orderBy = relevance ? "m.rank DESC, m.id DESC" : "m.creation_date DESC, m.id DESC";
+        List<QuestionSearchHit> hits = new ArrayList<>(jdbcTemplate.query(
+                String.format(SELECT_HITS, ranked, orderBy), params, (rs, rowNum) -> mapHit(rs)));
+
+        String nextCursor = null;
+        if (hits.size() > pageSize) {
+            hits.remove(pageSize);
+            QuestionSearchHit last = hits.get(pageSize - 1);
+            long sortKey = relevance
+                    ? Float.floatToIntBits((float) last.rank())
+                    : ChronoUnit.MICROS.between(Instant.EPOCH, last.creationDate());
+            nextCursor = new Cursor(resolvedSort, sortKey, last.questionId()).encode();
+        }
+        return new QuestionSearchResponse(text, resolvedSort, hits, nextCursor);
+    }
+
+    private QuestionSearchHit mapHit(ResultSet rs) throws SQLException {
+        Timestamp created = rs.getTimestamp("creation_date");
+        Array tagArray = rs.getArray("tag_names");
+        List<String> tagNames = tagArray == null ? List.of() : Arrays.asList((String[]) tagArray.getArray());
+        return new QuestionSearchHit(
+                rs.getLong("id"),
+                rs.getString("title"),
+                rs.getString("snippet"),
+                tagNames,
+                (Integer) rs.getObject("score"),
+                (Integer) rs.getObject("answer_count"),
+                created == null ? null : created.toInstant(),
+                rs.getFloat("rank"));
+    }
+
+    private String normalizeQuery(String query) {
+        String text = query == null ? "" : query.strip();
+        if (text.isEmpty() || text.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException(String.format(
+                    "Parameter 'q' must be between 1 and %d characters.", MAX_QUERY_LENGTH));
+        }
+        return text;
+    }
+
+    private String normalizeSort(String sort) {
+        if (sort == null || SORT_RELEVANCE.equalsIgnoreCase(sort)) {
+            return SORT_RELEVANCE;
+        }
+        if (SORT_NEWEST.equalsIgnoreCase(sort)) {
+            return SORT_NEWEST;
+        }
+        throw new IllegalArgumentException("Parameter 'sort' must be 'relevance' or 'newest'.");
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException(String.format(
+                    "Parameter 'limit' must be between 1 and %d.", MAX_LIMIT));
+        }
+        return limit;
+    }
+
+    private List<String> normalizeTags(List<String> tags) {
+        if (CollectionUtils.isEmpty(tags)) {
+            return List.of();
+        }
+        List<String> normalized = tags.stream()
+                .filter(tag -> tag != null && !tag.isBlank())
+                .map(tag -> tag.strip().toLowerCase(Locale.ENGLISH))
+                .distinct()
+                .toList();
+        List<String> invalidTags = normalized.stream().filter(tag -> !tagDictionary.exists(tag)).toList();
+        if (!invalidTags.isEmpty()) {
+            throw new IllegalArgumentException("Invalid tags: " + String.join(", ", invalidTags));
+        }
+        return normalized;
+    }
+
+    /**
+     * 上一页最后一笔的排序键：{@code relevance} 为 rank（float4）的位元表示，{@code newest} 为创建时间的微秒数。
+     */
+    private record Cursor(String sort, long sortKey, long id) {
+
+        String encode() {
+            String raw = sort + ":" + sortKey + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String value, String expectedSort) {
+            String[] parts;
+            try {
+                parts = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8).split(":");
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Parameter 'cursor' is malformed.");
+            }
+            if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+                throw new IllegalArgumentException("Parameter 'cursor' does not match the requested sort.");
+            }
+            try {
+                return new Cursor(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Parameter 'cursor' is malformed.");
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package cs209a.finalproject_demo.service;
+
+/**
+ * {@link QuestionScanService} 的可合并累加器：每个 fork-join 子任务各自累加一部分问题，
+ * 最后两两合并，因此实现不需要任何同步。
+ */
+public interface ScanAccumulator<T, A extends ScanAccumulator<T, A>> {
+
+    void accept(T item);
+
+    void merge(A other);
+}
@@ -3,7 +3,7 @@ package cs209a.finalproject_demo.service;
 import cs209a.finalproject_demo.model.Answer;
 import cs209a.finalproject_demo.model.Question;
 import cs209a.finalproject_demo.model.Tag;
-import cs209a.finalproject_demo.repository.QuestionRepository;
+import cs209a.finalproject_demo.service.AnalyticsResultCache.CachedResult;
 import cs209a.finalproject_demo.service.dto.HardQuestionCriteria;
 import cs209a.finalproject_demo.service.dto.SolvabilityComparisonResponse;
 import cs209a.finalproject_demo.service.dto.SolvabilityCriteria;
@@ -12,22 +12,19 @@ import cs209a.finalproject_demo.service.dto.SolvabilityTagStat;
 import cs209a.finalproject_demo.service.dto.SolvabilityTotals;
 import cs209a.finalproject_demo.service.dto.SolvableQuestionCriteria;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
-import java.util.function.ToDoubleFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Service
 public class SolvabilityAnalysisService {
@@ -42,14 +39,24 @@ public class SolvabilityAnalysisService {
     private static final Pattern CODE_BLOCK_PATTERN = Pattern.compile("<code\\b", Pattern.CASE_INSENSITIVE);
     private static final List<String> JAVA_TAG_FILTER = List.of("java");
 
-    private final QuestionRepository questionRepository;
-
-    public SolvabilityAnalysisService(QuestionRepository questionRepository) {
-        this.questionRepository = questionRepository;
+    private final QuestionScanService questionScanService;
+    private final AnalyticsResultCache resultCache;
+    private final ColumnarQuestionStore columnarStore;
+
+    public SolvabilityAnalysisService(
+            QuestionScanService questionScanService,
+            AnalyticsResultCache resultCache,
+            ColumnarQuestionStore columnarStore) {
+        this.questionScanService = questionScanService;
+        this.resultCache = resultCache;
+        this.columnarStore = columnarStore;
     }
 
-    @Transactional(readOnly = true)
-    public SolvabilityComparisonResponse compareSolvability(
+    /**
+     * 以 {@link QuestionScanService} 分页扫描 Java 问题，只保留两组的累计值而不是每个问题的快照，
+     * 因此内存用量与问题总数无关。
+     */
+    public CachedResult<SolvabilityComparisonResponse> compareSolvability(
             Integer minAcceptedAnswerScore,
             Integer maxFirstAnswerHours,
             Integer hardMinAnswerLatencyHours) {
@@ -57,34 +64,80 @@ public class SolvabilityAnalysisService {
                 minAcceptedAnswerScore,
                 maxFirstAnswerHours,
                 hardMinAnswerLatencyHours);
+        return resultCache.lookup("solvability", List.of(thresholds), () -> computeComparison(thresholds));
+    }
 
-        List<Long> questionIds = questionRepository.findDistinctIdsByTagNames(JAVA_TAG_FILTER);
-        if (questionIds.isEmpty()) {
+    private SolvabilityComparisonResponse computeComparison(SolvabilityThresholds thresholds) {
+        ColumnarQuestionStore.Snapshot snapshot = columnarStore.snapshot();
+        SolvabilityAccumulator result = snapshot != null
+                ? accumulateColumnar(snapshot, thresholds)
+                : questionScanService.scan(JAVA_TAG_FILTER, () -> new SolvabilityAccumulator(thresholds));
+        // 与逐题分析时一致：有 Java 问题但两组都为空时仍返回数值为 0 的因素列
+        if (result.scanned == 0) {
             return emptyResponse(thresholds);
         }
 
-        List<Question> questions = questionRepository.findAllById(questionIds);
-        List<QuestionSnapshot> solvable = new ArrayList<>();
-        List<QuestionSnapshot> hard = new ArrayList<>();
+        return new SolvabilityComparisonResponse(
+                buildCriteria(thresholds),
+                new SolvabilityTotals(result.solvable.count, result.hard.count),
+                buildFactors(result.solvable, result.hard),
+                computeTopTags(result.solvable),
+                computeTopTags(result.hard));
+    }
 
-        for (Question question : questions) {
-            QuestionSnapshot snapshot = buildSnapshot(question);
-            if (snapshot == null) {
+    /**
+     * 列式存储可用时，经由 {@code java} 标签的倒排表直接读取已预先算好的首答时间、采纳回答得分与代码块数，
+     * 标签先按 ID 计入数组，扫描结束后才换成名称。
+     */
+    private SolvabilityAccumulator accumulateColumnar(
+            ColumnarQuestionStore.Snapshot snapshot,
+            SolvabilityThresholds thresholds) {
+        SolvabilityAccumulator result = new SolvabilityAccumulator(thresholds);
+        int[] solvableTags = new int[snapshot.tagIdLimit()];
+        int[] hardTags = new int[snapshot.tagIdLimit()];
+        for (String tag : JAVA_TAG_FILTER) {
+            Integer tagId = columnarStore.tagId(tag);
+            if (tagId == null) {
                 continue;
             }
-            if (isSolvable(snapshot, thresholds)) {
-                solvable.add(snapshot);
-            } else if (isHard(snapshot, thresholds)) {
-                hard.add(snapshot);
-            }
+            snapshot.forEachTagged(tagId, (segment, row) -> {
+                result.scanned++;
+                int minutes = segment.firstAnswerMinutes(row);
+                double hoursToFirstAnswer = minutes == ColumnarQuestionStore.NO_ANSWER ? Double.NaN : minutes / 60.0;
+                boolean hasAcceptedAnswer = segment.hasFlag(row, ColumnarQuestionStore.FLAG_ACCEPTED_FOUND);
+                boolean acceptedScoreKnown = segment.hasFlag(row, ColumnarQuestionStore.FLAG_ACCEPTED_SCORE);
+                int answerCount = segment.answers(row);
+                GroupStats group;
+                int[] tagCounts;
+                if (isSolvable(hasAcceptedAnswer, acceptedScoreKnown, segment.acceptedScore(row),
+                        hoursToFirstAnswer, thresholds)) {
+                    group = result.solvable;
+                    tagCounts = solvableTags;
+                } else if (isHard(hasAcceptedAnswer, hoursToFirstAnswer, answerCount, thresholds)) {
+                    group = result.hard;
+                    tagCounts = hardTags;
+                } else {
+                    return;
+                }
+                group.add(segment.codeBlocks(row), hoursToFirstAnswer, segment.score(row), answerCount);
+                int end = segment.tagEnd(row);
+                for (int i = segment.tagStart(row); i < end; i++) {
+                    tagCounts[segment.tagIdAt(i)]++;
+                }
+            });
         }
+        addTagCounts(result.solvable, solvableTags);
+        addTagCounts(result.hard, hardTags);
+        return result;
+    }
 
-        return new SolvabilityComparisonResponse(
-                buildCriteria(thresholds),
-                new SolvabilityTotals(solvable.size(), hard.size()),
-                buildFactors(solvable, hard),
-                computeTopTags(solvable),
-                computeTopTags(hard));
+    private void addTagCounts(GroupStats stats, int[] countsByTagId) {
+        for (int tagId = 0; tagId < countsByTagId.length; tagId++) {
+            String name = countsByTagId[tagId] == 0 ? null : columnarStore.tagName(tagId);
+            if (name != null) {
+                stats.tagCounts.merge(name.toLowerCase(Locale.ENGLISH), (long) countsByTagId[tagId], Long::sum);
+            }
+        }
     }
 
     private SolvabilityComparisonResponse emptyResponse(SolvabilityThresholds thresholds) {
@@ -167,59 +220,69 @@ public class SolvabilityAnalysisService {
         return Duration.between(questionCreation, firstAnswer).toMinutes() / 60.0;
     }
 
-    private boolean isSolvable(QuestionSnapshot snapshot, SolvabilityThresholds thresholds) {
-        return snapshot.hasAcceptedAnswer()
-                && snapshot.acceptedAnswerScore() != null
-                && snapshot.acceptedAnswerScore() >= thresholds.minAcceptedAnswerScore()
-                && snapshot.hoursToFirstAnswer() != null
-                && snapshot.hoursToFirstAnswer() <= thresholds.maxFirstAnswerHours();
+    /**
+     * @param hoursToFirstAnswer 没有回答时为 {@code NaN}
+     */
+    private static boolean isSolvable(
+            boolean hasAcceptedAnswer,
+            boolean acceptedScoreKnown,
+            int acceptedAnswerScore,
+            double hoursToFirstAnswer,
+            SolvabilityThresholds thresholds) {
+        return hasAcceptedAnswer
+                && acceptedScoreKnown
+                && acceptedAnswerScore >= thresholds.minAcceptedAnswerScore()
+                && !Double.isNaN(hoursToFirstAnswer)
+                && hoursToFirstAnswer <= thresholds.maxFirstAnswerHours();
     }
 
-    private boolean isHard(QuestionSnapshot snapshot, SolvabilityThresholds thresholds) {
-        boolean noAnswers = snapshot.answerCount() == 0;
-        boolean missingAccepted = !snapshot.hasAcceptedAnswer();
-        boolean slowResponse = snapshot.hoursToFirstAnswer() == null
-                || snapshot.hoursToFirstAnswer() > thresholds.hardMinAnswerLatencyHours();
+    private static boolean isHard(
+            boolean hasAcceptedAnswer,
+            double hoursToFirstAnswer,
+            int answerCount,
+            SolvabilityThresholds thresholds) {
+        boolean noAnswers = answerCount == 0;
+        boolean missingAccepted = !hasAcceptedAnswer;
+        boolean slowResponse = Double.isNaN(hoursToFirstAnswer)
+                || hoursToFirstAnswer > thresholds.hardMinAnswerLatencyHours();
         return noAnswers || missingAccepted || slowResponse;
     }
 
-    private List<SolvabilityFactor> buildFactors(List<QuestionSnapshot> solvable, List<QuestionSnapshot> hard) {
+    private List<SolvabilityFactor> buildFactors(GroupStats solvable, GroupStats hard) {
         List<SolvabilityFactor> factors = new ArrayList<>();
         factors.add(new SolvabilityFactor(
                 "平均代码块数量",
-                averagePrimitive(solvable, QuestionSnapshot::codeBlockCount),
-                averagePrimitive(hard, QuestionSnapshot::codeBlockCount),
+                average(solvable.codeBlockTotal, solvable.count),
+                average(hard.codeBlockTotal, hard.count),
                 "blocks"));
         factors.add(new SolvabilityFactor(
                 "含代码示例占比",
-                percentageWithCode(solvable),
-                percentageWithCode(hard),
+                safePercentage(solvable.withCode, solvable.count),
+                safePercentage(hard.withCode, hard.count),
                 "percent"));
         factors.add(new SolvabilityFactor(
                 "平均首答所需小时",
-                averageNullable(solvable, QuestionSnapshot::hoursToFirstAnswer),
-                averageNullable(hard, QuestionSnapshot::hoursToFirstAnswer),
+                average(solvable.hoursToFirstAnswerTotal, solvable.answeredCount),
+                average(hard.hoursToFirstAnswerTotal, hard.answeredCount),
                 "hours"));
         factors.add(new SolvabilityFactor(
                 "平均问题得分",
-                averagePrimitive(solvable, QuestionSnapshot::questionScore),
-                averagePrimitive(hard, QuestionSnapshot::questionScore),
+                average(solvable.questionScoreTotal, solvable.count),
+                average(hard.questionScoreTotal, hard.count),
                 "score"));
         factors.add(new SolvabilityFactor(
                 "平均回答数量",
-                averagePrimitive(solvable, QuestionSnapshot::answerCount),
-                averagePrimitive(hard, QuestionSnapshot::answerCount),
+                average(solvable.answerCountTotal, solvable.count),
+                average(hard.answerCountTotal, hard.count),
                 "count"));
         return factors;
     }
 
-    private List<SolvabilityTagStat> computeTopTags(List<QuestionSnapshot> snapshots) {
-        if (snapshots.isEmpty()) {
+    private List<SolvabilityTagStat> computeTopTags(GroupStats stats) {
+        if (stats.count == 0) {
             return Collections.emptyList();
         }
-        Map<String, Long> counts = snapshots.stream()
-                .flatMap(snapshot -> snapshot.tags().stream())
-                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        Map<String, Long> counts = stats.tagCounts;
         int total = counts.values().stream().mapToInt(Long::intValue).sum();
         return counts.entrySet().stream()
                 .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
@@ -229,33 +292,7 @@ public class SolvabilityAnalysisService {
                 .toList();
     }
 
-    private double percentageWithCode(List<QuestionSnapshot> snapshots) {
-        if (snapshots.isEmpty()) {
-            return 0;
-        }
-        long withCode = snapshots.stream()
-                .filter(snapshot -> snapshot.codeBlockCount() > 0)
-                .count();
-        return safePercentage(withCode, snapshots.size());
-    }
-
-    private double averagePrimitive(List<QuestionSnapshot> snapshots, ToDoubleFunction<QuestionSnapshot> extractor) {
-        if (snapshots.isEmpty()) {
-            return 0;
-        }
-        return snapshots.stream().mapToDouble(extractor).average().orElse(0);
-    }
-
-    private double averageNullable(List<QuestionSnapshot> snapshots, Function<QuestionSnapshot, Double> extractor) {
-        double total = 0;
-        int count = 0;
-        for (QuestionSnapshot snapshot : snapshots) {
-            Double value = extractor.apply(snapshot);
-            if (value != null) {
-                total += value;
-                count++;
-            }
-        }
+    private double average(double total, long count) {
         return count == 0 ? 0 : total / count;
     }
 
@@ -315,6 +352,94 @@ public class SolvabilityAnalysisService {
             int hardMinAnswerLatencyHours) {
     }
 
+    /**
+     * 单组（可解决或困难）的累计值，足以算出所有因子与热门标签。
+     */
+    private static final class GroupStats {
+
+        private int count;
+        private long codeBlockTotal;
+        private long withCode;
+        private double hoursToFirstAnswerTotal;
+        private long answeredCount;
+        private long questionScoreTotal;
+        private long answerCountTotal;
+        private final Map<String, Long> tagCounts = new HashMap<>();
+
+        private void add(QuestionSnapshot snapshot) {
+            add(snapshot.codeBlockCount(),
+                    snapshot.hoursToFirstAnswer() == null ? Double.NaN : snapshot.hoursToFirstAnswer(),
+                    snapshot.questionScore(),
+                    snapshot.answerCount());
+            for (String tag : snapshot.tags()) {
+                tagCounts.merge(tag, 1L, Long::sum);
+            }
+        }
+
+        /**
+         * 累计单个问题的数值部分，标签由调用方另行计入。
+         */
+        private void add(int codeBlockCount, double hoursToFirstAnswer, int questionScore, int answerCount) {
+            count++;
+            codeBlockTotal += codeBlockCount;
+            if (codeBlockCount > 0) {
+                withCode++;
+            }
+            if (!Double.isNaN(hoursToFirstAnswer)) {
+                hoursToFirstAnswerTotal += hoursToFirstAnswer;
+                answeredCount++;
+            }
+            questionScoreTotal += questionScore;
+            answerCountTotal += answerCount;
+        }
+
+        private void merge(GroupStats other) {
+            count += other.count;
+            codeBlockTotal += other.codeBlockTotal;
+            withCode += other.withCode;
+            hoursToFirstAnswerTotal += other.hoursToFirstAnswerTotal;
+            answeredCount += other.answeredCount;
+            questionScoreTotal += other.questionScoreTotal;
+            answerCountTotal += other.answerCountTotal;
+            other.tagCounts.forEach((tag, tagCount) -> tagCounts.merge(tag, tagCount, Long::sum));
+        }
+    }
+
+    private final class SolvabilityAccumulator implements ScanAccumulator<Question, SolvabilityAccumulator> {
+
+        private final SolvabilityThresholds thresholds;
+        private final GroupStats solvable = new GroupStats();
+        private final GroupStats hard = new GroupStats();
+        private long scanned;
+
+        private SolvabilityAccumulator(SolvabilityThresholds thresholds) {
+            this.thresholds = thresholds;
+        }
+
+        @Override
+        public void accept(Question question) {
+            scanned++;
+            QuestionSnapshot snapshot = buildSnapshot(question);
+            double hoursToFirstAnswer = snapshot.hoursToFirstAnswer() == null
+                    ? Double.NaN
+                    : snapshot.hoursToFirstAnswer();
+            Integer acceptedScore = snapshot.acceptedAnswerScore();
+            if (isSolvable(snapshot.hasAcceptedAnswer(), acceptedScore != null,
+                    acceptedScore == null ? 0 : acceptedScore, hoursToFirstAnswer, thresholds)) {
+                solvable.add(snapshot);
+            } else if (isHard(snapshot.hasAcceptedAnswer(), hoursToFirstAnswer, snapshot.answerCount(), thresholds)) {
+                hard.add(snapshot);
+            }
+        }
+
+        @Override
+        public void merge(SolvabilityAccumulator other) {
+            solvable.merge(other.solvable);
+            hard.merge(other.hard);
+            scanned += other.scanned;
+        }
+    }
+
     private record QuestionSnapshot(
             int titleLength,
             int codeBlockCount,
@@ -0,0 +1,221 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.service.AnalyticsResultCache.CachedResult;
+import cs209a.finalproject_demo.service.dto.TagCluster;
+import cs209a.finalproject_demo.service.dto.TagClusterMember;
+import cs209a.finalproject_demo.service.dto.TagClusterResponse;
+import cs209a.finalproject_demo.util.CompactWeightedGraph;
+import cs209a.finalproject_demo.util.LongLongHashMap;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 以标签共现图做社群侦测：节点为标签，边权为两个标签同时出现的问题数。
+ * <p>
+ * 边直接从 {@code tag_pair_stats} 串流读入（汇总表尚未就绪时退回 {@code question_tags} 自连接），
+ * 标签 ID 映射为连续的节点编号后存成 {@link CompactWeightedGraph} 的 CSR 数组，
+ * 再在 fork-join 池中并行执行标签传播。结果按数据集版本缓存，匯入新数据后才会重新计算。
+ */
+@Service
+public class TagClusterService {
+
+    private static final int DEFAULT_MIN_WEIGHT = 2;
+    private static final int DEFAULT_MIN_CLUSTER_SIZE = 2;
+    private static final int DEFAULT_MAX_ITERATIONS = 50;
+    private static final int MAX_ITERATIONS = 1000;
+    private static final int EDGE_FETCH_SIZE = 10_000;
+
+    private static final String SELECT_ROLLUP_EDGES = """
+            SELECT tag_a_id, tag_b_id, question_count
+            FROM tag_pair_stats
+            WHERE question_count >= ?
+            """;
+
+    private static final String SELECT_JOINED_EDGES = """
+            SELECT qt1.tag_id, qt2.tag_id, COUNT(*)
+            FROM question_tags qt1
+            JOIN question_tags qt2
+                    ON qt2.question_id = qt1.question_id
+                    AND qt1.tag_id < qt2.tag_id
+            GROUP BY 1, 2
+            HAVING COUNT(*) >= ?
+            """;
+
+    private static final String SELECT_TAG_NAMES_BY_IDS = "SELECT id, name FROM tags WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TagPairRollupService pairRollupService;
+    private final AnalyticsResultCache resultCache;
+    private final ForkJoinPool pool;
+
+    public TagClusterService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            TagPairRollupService pairRollupService,
+            AnalyticsResultCache resultCache,
+            @Value("${app.analysis.scan-parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingTemplate.setFetchSize(EDGE_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.pairRollupService = pairRollupService;
+        this.resultCache = resultCache;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param minWeight      可选，边至少需要的共现问题数，用来滤掉偶然组合；默认 2
+     * @param minClusterSize 可选，只返回至少含有这么多标签的群；默认 2
+     * @param maxIterations  可选，标签传播的最大轮数；默认 50
+     */
+    public CachedResult<TagClusterResponse> getClusters(
+            Integer minWeight,
+            Integer minClusterSize,
+            Integer maxIterations) {
+        int weight = requirePositive("minWeight", minWeight, DEFAULT_MIN_WEIGHT, Integer.MAX_VALUE);
+        int clusterSize = requirePositive("minClusterSize", minClusterSize, DEFAULT_MIN_CLUSTER_SIZE, Integer.MAX_VALUE);
+        int iterations = requirePositive("maxIterations", maxIterations, DEFAULT_MAX_ITERATIONS, MAX_ITERATIONS);
+        return resultCache.lookup("tag-clusters", List.of(weight, clusterSize, iterations),
+                () -> computeClusters(weight, clusterSize, iterations));
+    }
+
+    private TagClusterResponse computeClusters(int minWeight, int minClusterSize, int maxIterations) {
+        TagGraph tagGraph = loadGraph(minWeight);
+        CompactWeightedGraph graph = tagGraph.graph();
+        CompactWeightedGraph.Labels result = graph.propagateLabels(maxIterations, pool);
+        int[] labels = result.labels();
+
+        int nodeCount = graph.nodeCount();
+        long[] internalWeights = new long[nodeCount];
+        int[] sizes = new int[nodeCount];
+        long[] clusterInternal = new long[nodeCount];
+        long[] clusterStrength = new long[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            int label = labels[node];
+            sizes[label]++;
+            clusterStrength[label] += graph.strength(node);
+            long[] internal = new long[1];
+            graph.forEachNeighbor(node, (neighbor, weight) -> {
+                if (labels[neighbor] == label) {
+                    internal[0] += weight;
+                }
+            });
+            internalWeights[node] = internal[0];
+            clusterInternal[label] += internal[0];
+        }
+
+        Map<Integer, List<Integer>> members = new HashMap<>();
+        for (int node = 0; node < nodeCount; node++) {
+            if (sizes[labels[node]] >= minClusterSize) {
+                members.computeIfAbsent(labels[node], label -> new ArrayList<>()).add(node);
+            }
+        }
+        Map<Long, String> names = tagNames(tagGraph.tagIds(), members.values());
+        List<Integer> ranked = new ArrayList<>(members.keySet());
+        ranked.sort(Comparator.<Integer>comparingLong(label -> clusterInternal[label]).reversed()
+                .thenComparingInt(label -> label));
+        List<TagCluster> clusters = new ArrayList<>(ranked.size());
+        for (int label : ranked) {
+            List<TagClusterMember> tags = members.get(label).stream()
+                    .sorted(Comparator.<Integer>comparingLong(node -> internalWeights[node]).reversed()
+                            .thenComparingLong(node -> -graph.strength(node))
+                            .thenComparingInt(node -> node))
+                    .map(node -> new TagClusterMember(
+                            names.get(tagGraph.tagIds()[node]), graph.strength(node), internalWeights[node]))
+                    .toList();
+            // 群内每条边在两端各计一次
+            long internal = clusterInternal[label] / 2;
+            clusters.add(new TagCluster(clusters.size() + 1, sizes[label], internal,
+                    clusterStrength[label] - clusterInternal[label], tags));
+        }
+        return new TagClusterResponse(minWeight, minClusterSize, maxIterations, result.iterations(),
+                result.converged(), nodeCount, graph.edgeCount(), graph.modularity(labels), clusters);
+    }
+
+    private TagGraph loadGraph(int minWeight) {
+        LongLongHashMap nodesByTag = new LongLongHashMap();
+        long[][] tagIds = {new long[1024]};
+        CompactWeightedGraph.Builder builder = new CompactWeightedGraph.Builder();
+        String sql = pairRollupService.isReady() ? SELECT_ROLLUP_EDGES : SELECT_JOINED_EDGES;
+        // 驱动程序只在交易内按 fetch size 分批取回，边不会先整批载入为结果集
+        readOnlyTransaction.executeWithoutResult(status ->
+                streamingTemplate.query(sql, (RowCallbackHandler) rs -> {
+                    int a = node(nodesByTag, tagIds, rs.getLong(1));
+                    int b = node(nodesByTag, tagIds, rs.getLong(2));
+                    builder.addEdge(a, b, rs.getLong(3));
+                }, minWeight));
+        return new TagGraph(builder.build(), Arrays.copyOf(tagIds[0], nodesByTag.size()));
+    }
+
+    private static int node(LongLongHashMap nodesByTag, long[][] tagIds, long tagId) {
+        long node = nodesByTag.get(tagId, -1);
+        if (node >= 0) {
+            return (int) node;
+        }
+        int next = nodesByTag.size();
+        if (next == tagIds[0].length) {
+            tagIds[0] = Arrays.copyOf(tagIds[0], next * 2);
+        }
+        tagIds[0][next] = tagId;
+        nodesByTag.put(tagId, next);
+        return next;
+    }
+
+    private Map<Long, String> tagNames(long[] tagIds, Iterable<List<Integer>> clusters) {
+        List<Long> ids = new ArrayList<>();
+        for (List<Integer> nodes : clusters) {
+            for (int node : nodes) {
+                ids.add(tagIds[node]);
+            }
+        }
+        Map<Long, String> names = new HashMap<>(ids.size() * 2);
+        if (ids.isEmpty()) {
+            return names;
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_TAG_NAMES_BY_IDS);
+            statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return statement;
+        }, (RowCallbackHandler) rs -> names.put(rs.getLong(1), rs.getString(2)));
+        return names;
+    }
+
+    private static int requirePositive(String name, Integer value, int defaultValue, int max) {
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value < 1 || value > max) {
+            throw new IllegalArgumentException(String.format(
+                    "Parameter '%s' must be between 1 and %d.", name, max));
+        }
+        return value;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @param tagIds 节点编号 → 标签 ID
+     */
+    private record TagGraph(CompactWeightedGraph graph, long[] tagIds) {
+    }
+}
@@ -0,0 +1,128 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.model.Tag;
+import cs209a.finalproject_demo.repository.TagRepository;
+import cs209a.finalproject_demo.repository.projection.TagNameRow;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 标签名称到 ID 的共享字典：启动时一次载入全部 tags，之后由匯入流程批量补充。
+ * 新标签以 {@code ON CONFLICT DO NOTHING} 的 upsert 写入并在独立交易中提交，
+ * 因此多个匯入程序并发创建同名标签也不会违反唯一约束，且字典中只会出现已提交的 ID。
+ */
+@Service
+public class TagDictionaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(TagDictionaryService.class);
+
+    private static final int UPSERT_CHUNK_SIZE = 1000;
+
+    private static final String UPSERT_TAGS = """
+            INSERT INTO tags (name)
+            SELECT unnest(?)
+            ON CONFLICT (name) DO NOTHING
+            """;
+
+    private static final String SELECT_TAG_IDS = "SELECT id, name FROM tags WHERE name = ANY(?)";
+
+    private final Map<String, Long> idsByName = new ConcurrentHashMap<>();
+    private final TagRepository tagRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+
+    public TagDictionaryService(
+            TagRepository tagRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager) {
+        this.tagRepository = tagRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void load() {
+        List<TagNameRow> rows = tagRepository.findAllNames();
+        rows.forEach(row -> idsByName.put(row.getName(), row.getId()));
+        log.info("标签字典已载入 {} 个标签。", rows.size());
+    }
+
+    /**
+     * 判断标签是否存在。字典未命中时回查一次数据库，以涵盖由其它进程（如采集脚本）新增的标签。
+     */
+    public boolean exists(String name) {
+        return findId(name).isPresent();
+    }
+
+    public Optional<Long> findId(String name) {
+        Long id = idsByName.get(name);
+        if (id != null) {
+            return Optional.of(id);
+        }
+        Optional<Long> stored = tagRepository.findByName(name).map(Tag::getId);
+        stored.ifPresent(value -> idsByName.put(name, value));
+        return stored;
+    }
+
+    /**
+     * 解析一批标签名称（须已正规化为小写），缺少的标签会被批量创建。
+     */
+    public Map<String, Long> resolveIds(Collection<String> names) {
+        Map<String, Long> resolved = new HashMap<>(names.size() * 2);
+        Set<String> missing = new LinkedHashSet<>();
+        for (String name : names) {
+            Long id = idsByName.get(name);
+            if (id != null) {
+                resolved.put(name, id);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<String> pending = new ArrayList<>(missing);
+            for (int start = 0; start < pending.size(); start += UPSERT_CHUNK_SIZE) {
+                List<String> chunk = pending.subList(start, Math.min(pending.size(), start + UPSERT_CHUNK_SIZE));
+                resolved.putAll(upsert(chunk));
+            }
+        }
+        return resolved;
+    }
+
+    private Map<String, Long> upsert(List<String> names) {
+        String[] values = names.toArray(String[]::new);
+        Map<String, Long> created = new HashMap<>(names.size() * 2);
+        newTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(UPSERT_TAGS);
+                statement.setArray(1, connection.createArrayOf("varchar", values));
+                return statement;
+            });
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_TAG_IDS);
+                statement.setArray(1, connection.createArrayOf("varchar", values));
+                return statement;
+            }, (RowCallbackHandler) rs -> created.put(rs.getString(2), rs.getLong(1)));
+        });
+        idsByName.putAll(created);
+        return created;
+    }
+}
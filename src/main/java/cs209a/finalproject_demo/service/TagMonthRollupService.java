@@ -0,0 +1,168 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.importer.QuestionsImportedEvent;
+import cs209a.finalproject_demo.importer.QuestionsMergingEvent;
+import cs209a.finalproject_demo.model.RollupState;
+import cs209a.finalproject_demo.repository.RollupStateRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 维护 {@code tag_month_stats}（标签 × UTC 月的问题数，以及得分、浏览、回答数与已采纳问题数的总和）。
+ * <p>
+ * 匯入批次在同一交易内更新：合并模式覆写前先按库中旧内容减去这些问题的贡献，写入后再按新内容加回，
+ * 因此标签、创建时间或得分的变化都会正确反映。表尚未建置或定义变化时，启动后在背景以一条
+ * {@code INSERT ... SELECT} 从基础表重建；重建期间持有表锁，匯入批次的增量会等待重建提交后再套用，
+ * 不会遗漏或重复。重建完成前 {@link #isReady()} 为 {@code false}，趋势接口应直接查询基础表。
+ */
+@Service
+public class TagMonthRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(TagMonthRollupService.class);
+
+    private static final String ROLLUP_NAME = "tag_month";
+    private static final int ROLLUP_VERSION = 2;
+
+    private static final String APPLY_DELTA = """
+            INSERT INTO tag_month_stats (tag_id, month_start, question_count, score_sum, view_sum, answer_sum, accepted_count)
+            SELECT
+                qt.tag_id,
+                date_trunc('month', q.creation_date AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+                ? * COUNT(*),
+                ? * COALESCE(SUM(q.score), 0),
+                ? * COALESCE(SUM(q.view_count), 0),
+                ? * COALESCE(SUM(q.answer_count), 0),
+                ? * COUNT(q.accepted_answer_id)
+            FROM questions q
+            JOIN question_tags qt ON qt.question_id = q.id
+            WHERE q.id = ANY(?) AND q.creation_date IS NOT NULL
+            GROUP BY 1, 2
+            ORDER BY 1, 2
+            ON CONFLICT (tag_id, month_start) DO UPDATE SET
+                question_count = tag_month_stats.question_count + EXCLUDED.question_count,
+                score_sum = tag_month_stats.score_sum + EXCLUDED.score_sum,
+                view_sum = tag_month_stats.view_sum + EXCLUDED.view_sum,
+                answer_sum = tag_month_stats.answer_sum + EXCLUDED.answer_sum,
+                accepted_count = tag_month_stats.accepted_count + EXCLUDED.accepted_count
+            """;
+
+    private static final String LOCK_TABLE = "LOCK TABLE tag_month_stats IN EXCLUSIVE MODE";
+
+    private static final String DELETE_ALL = "DELETE FROM tag_month_stats";
+
+    private static final String REBUILD = """
+            INSERT INTO tag_month_stats (tag_id, month_start, question_count, score_sum, view_sum, answer_sum, accepted_count)
+            SELECT
+                qt.tag_id,
+                date_trunc('month', q.creation_date AT TIME ZONE 'UTC') AT TIME ZONE 'UTC',
+                COUNT(*),
+                COALESCE(SUM(q.score), 0),
+                COALESCE(SUM(q.view_count), 0),
+                COALESCE(SUM(q.answer_count), 0),
+                COUNT(q.accepted_answer_id)
+            FROM questions q
+            JOIN question_tags qt ON qt.question_id = q.id
+            WHERE q.creation_date IS NOT NULL
+            GROUP BY 1, 2
+            """;
+
+    private final RollupStateRepository stateRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tag-month-rollup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean ready;
+
+    public TagMonthRollupService(
+            RollupStateRepository stateRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate) {
+        this.stateRepository = stateRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void checkRollup() {
+        boolean built = stateRepository.findById(ROLLUP_NAME)
+                .map(state -> state.getVersion() == ROLLUP_VERSION)
+                .orElse(false);
+        if (built) {
+            ready = true;
+            return;
+        }
+        log.info("tag_month_stats 尚未建置或定义已变更，开始在背景重建。");
+        executor.execute(this::rebuild);
+    }
+
+    @EventListener
+    public void onQuestionsMerging(QuestionsMergingEvent event) {
+        applyDelta(event.questionIds(), -1);
+    }
+
+    @EventListener
+    public void onQuestionsImported(QuestionsImportedEvent event) {
+        applyDelta(event.questionIds(), 1);
+    }
+
+    private void applyDelta(List<Long> questionIds, int sign) {
+        if (questionIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(APPLY_DELTA);
+            for (int index = 1; index <= 5; index++) {
+                statement.setInt(index, sign);
+            }
+            statement.setArray(6, connection.createArrayOf("bigint", questionIds.toArray()));
+            return statement;
+        });
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            long rows = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute(LOCK_TABLE);
+                jdbcTemplate.update(DELETE_ALL);
+                long inserted = jdbcTemplate.update(REBUILD);
+                RollupState state = stateRepository.findById(ROLLUP_NAME).orElseGet(RollupState::new);
+                state.setName(ROLLUP_NAME);
+                state.setVersion(ROLLUP_VERSION);
+                state.setRowCount(inserted);
+                state.setBuiltAt(Instant.now());
+                stateRepository.save(state);
+                return inserted;
+            });
+            ready = true;
+            log.info("tag_month_stats 重建完成，共 {} 行，耗时 {} ms。", rows, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("重建 tag_month_stats 失败，趋势接口将继续直接查询基础表", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,190 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.importer.QuestionsImportedEvent;
+import cs209a.finalproject_demo.importer.QuestionsMergingEvent;
+import cs209a.finalproject_demo.model.RollupState;
+import cs209a.finalproject_demo.repository.RollupStateRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 维护 {@code tag_pair_stats}（每对标签同时出现的问题数）以及配套的 {@code tag_stats}（每个标签的问题数与问题总数）。
+ * <p>
+ * 每个问题贡献其标签两两组合各一次，匯入批次只需处理本批问题的 k² 个组合：
+ * 合并模式覆写前先按库中旧标签减去，写入后再按新标签加回，计数降为 0 的组合保留在表中但不会被查询。
+ * 表尚未建置或定义变化时，启动后在背景以 {@code INSERT ... SELECT} 从基础表重建两张表；重建期间持有表锁，匯入批次的增量会等待重建提交后再套用，
+ * 不会遗漏或重复。重建完成前 {@link #isReady()} 为 {@code false}，共现接口应退回其它计算方式。
+ */
+@Service
+public class TagPairRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(TagPairRollupService.class);
+
+    private static final String ROLLUP_NAME = "tag_pair";
+    private static final int ROLLUP_VERSION = 2;
+
+    private static final String APPLY_DELTA = """
+            INSERT INTO tag_pair_stats (tag_a_id, tag_b_id, question_count)
+            SELECT qt1.tag_id, qt2.tag_id, ? * COUNT(*)
+            FROM question_tags qt1
+            JOIN question_tags qt2
+                    ON qt2.question_id = qt1.question_id
+                    AND qt1.tag_id < qt2.tag_id
+            WHERE qt1.question_id = ANY(?)
+            GROUP BY 1, 2
+            ORDER BY 1, 2
+            ON CONFLICT (tag_a_id, tag_b_id) DO UPDATE SET
+                question_count = tag_pair_stats.question_count + EXCLUDED.question_count
+            """;
+
+    // 问题总数与各标签计数放在同一条语句并按 tag_id 排序，并行的批次以相同顺序锁定行，不会互相死锁
+    private static final String APPLY_TAG_DELTA = """
+            INSERT INTO tag_stats (tag_id, question_count)
+            SELECT tag_id, SUM(question_count) FROM (
+                SELECT 0 AS tag_id, ? * COUNT(*) AS question_count
+                FROM questions
+                WHERE id = ANY(?)
+                UNION ALL
+                SELECT tag_id, ? * COUNT(*)
+                FROM question_tags
+                WHERE question_id = ANY(?)
+                GROUP BY tag_id
+            ) delta
+            GROUP BY tag_id
+            ORDER BY tag_id
+            ON CONFLICT (tag_id) DO UPDATE SET
+                question_count = tag_stats.question_count + EXCLUDED.question_count
+            """;
+
+    private static final String LOCK_TABLES = "LOCK TABLE tag_pair_stats, tag_stats IN EXCLUSIVE MODE";
+
+    private static final String DELETE_ALL = "DELETE FROM tag_pair_stats";
+
+    private static final String DELETE_TAG_STATS = "DELETE FROM tag_stats";
+
+    private static final String REBUILD_TAG_STATS = """
+            INSERT INTO tag_stats (tag_id, question_count)
+            SELECT 0, COUNT(*) FROM questions
+            UNION ALL
+            SELECT tag_id, COUNT(*) FROM question_tags GROUP BY tag_id
+            """;
+
+    private static final String REBUILD = """
+            INSERT INTO tag_pair_stats (tag_a_id, tag_b_id, question_count)
+            SELECT qt1.tag_id, qt2.tag_id, COUNT(*)
+            FROM question_tags qt1
+            JOIN question_tags qt2
+                    ON qt2.question_id = qt1.question_id
+                    AND qt1.tag_id < qt2.tag_id
+            GROUP BY 1, 2
+            """;
+
+    private final RollupStateRepository stateRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tag-pair-rollup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean ready;
+
+    public TagPairRollupService(
+            RollupStateRepository stateRepository,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate) {
+        this.stateRepository = stateRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void checkRollup() {
+        boolean built = stateRepository.findById(ROLLUP_NAME)
+                .map(state -> state.getVersion() == ROLLUP_VERSION)
+                .orElse(false);
+        if (built) {
+            ready = true;
+            return;
+        }
+        log.info("tag_pair_stats 尚未建置或定义已变更，开始在背景重建。");
+        executor.execute(this::rebuild);
+    }
+
+    @EventListener
+    public void onQuestionsMerging(QuestionsMergingEvent event) {
+        applyDelta(event.questionIds(), -1);
+    }
+
+    @EventListener
+    public void onQuestionsImported(QuestionsImportedEvent event) {
+        applyDelta(event.questionIds(), 1);
+    }
+
+    private void applyDelta(List<Long> questionIds, int sign) {
+        if (questionIds.isEmpty()) {
+            return;
+        }
+        Object[] ids = questionIds.toArray();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(APPLY_DELTA);
+            statement.setInt(1, sign);
+            statement.setArray(2, connection.createArrayOf("bigint", ids));
+            return statement;
+        });
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(APPLY_TAG_DELTA);
+            statement.setInt(1, sign);
+            statement.setArray(2, connection.createArrayOf("bigint", ids));
+            statement.setInt(3, sign);
+            statement.setArray(4, connection.createArrayOf("bigint", ids));
+            return statement;
+        });
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            long rows = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute(LOCK_TABLES);
+                jdbcTemplate.update(DELETE_ALL);
+                jdbcTemplate.update(DELETE_TAG_STATS);
+                long inserted = jdbcTemplate.update(REBUILD);
+                jdbcTemplate.update(REBUILD_TAG_STATS);
+                RollupState state = stateRepository.findById(ROLLUP_NAME).orElseGet(RollupState::new);
+                state.setName(ROLLUP_NAME);
+                state.setVersion(ROLLUP_VERSION);
+                state.setRowCount(inserted);
+                state.setBuiltAt(Instant.now());
+                stateRepository.save(state);
+                return inserted;
+            });
+            ready = true;
+            log.info("tag_pair_stats 重建完成，共 {} 行，耗时 {} ms。", rows, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("重建 tag_pair_stats 失败，共现接口将继续即时计算", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,266 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.importer.QuestionsImportedEvent;
+import cs209a.finalproject_demo.importer.StackOverflowThreadMapper.MappedThread;
+import cs209a.finalproject_demo.service.dto.ApproximateCooccurrencePair;
+import cs209a.finalproject_demo.service.dto.ApproximateCooccurrenceResponse;
+import cs209a.finalproject_demo.util.LongBitmap;
+import cs209a.finalproject_demo.util.SpaceSavingSketch;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * 标签组合的近似频次摘要（{@code app.analysis.pair-sketch.enabled=true} 时启用）：以 Space-Saving 算法
+ * 在固定的内存预算（{@code app.analysis.pair-sketch.memory-kb}）内追踪出现最多的组合，不随标签种类或问题数增长。
+ * <p>
+ * 启动后在背景按问题顺序扫描一次 {@code question_tags} 建立摘要，之后每个匯入批次提交后把新增问题的组合直接计入，
+ * 不再读取数据库。扫描期间提交的批次先暂存，扫描结束后只补计扫描没看到的问题，每个问题恰好计入一次。
+ * <p>
+ * 摘要只能累加：合并模式下被覆写的既有问题不会重新计入，其标签变化要到下次启动重建时才反映出来。
+ * 需要精确结果或时间区间、锚点、关联度时应使用 {@link TopicCooccurrenceService} 的精确计算。
+ */
+@Service
+public class TagPairSketchService {
+
+    private static final Logger log = LoggerFactory.getLogger(TagPairSketchService.class);
+
+    private static final int LOAD_FETCH_SIZE = 5000;
+
+    private static final String SELECT_QUESTION_TAGS =
+            "SELECT question_id, tag_id FROM question_tags ORDER BY question_id, tag_id";
+
+    private static final String SELECT_TAG_NAMES_BY_IDS = "SELECT id, name FROM tags WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TagDictionaryService tagDictionary;
+    private final boolean enabled;
+    private final long memoryBytes;
+    private final SpaceSavingSketch sketch;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tag-pair-sketch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private List<PendingQuestion> pending = new ArrayList<>();
+    private boolean ready;
+    private long updates;
+
+    public TagPairSketchService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            TagDictionaryService tagDictionary,
+            @Value("${app.analysis.pair-sketch.enabled:false}") boolean enabled,
+            @Value("${app.analysis.pair-sketch.memory-kb:4096}") long memoryKb) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingTemplate.setFetchSize(LOAD_FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.tagDictionary = tagDictionary;
+        this.enabled = enabled;
+        int capacity = SpaceSavingSketch.capacityFor(memoryKb * 1024);
+        this.memoryBytes = (long) capacity * SpaceSavingSketch.BYTES_PER_COUNTER;
+        this.sketch = enabled ? new SpaceSavingSketch(capacity) : null;
+    }
+
+    /**
+     * 摘要每计入一个问题递增，可与数据集版本一起作为缓存键的一部分。
+     */
+    public synchronized long updateCount() {
+        return updates;
+    }
+
+    /**
+     * 取出估计次数最高的 {@code top} 个组合；摘要尚未建好时 {@code ready} 为 {@code false}。
+     */
+    public ApproximateCooccurrenceResponse topPairs(int top) {
+        if (!enabled) {
+            throw new IllegalArgumentException(
+                    "Approximate co-occurrence is disabled; set app.analysis.pair-sketch.enabled=true.");
+        }
+        List<SpaceSavingSketch.Entry> entries;
+        int trackedPairs;
+        long totalPairs;
+        long maxError;
+        synchronized (this) {
+            if (!ready) {
+                return new ApproximateCooccurrenceResponse(top, false, sketch.capacity(), memoryBytes, 0, 0, 0,
+                        List.of());
+            }
+            entries = sketch.top(top);
+            trackedPairs = sketch.size();
+            totalPairs = sketch.total();
+            maxError = sketch.maxError();
+        }
+        Map<Long, String> names = tagNames(entries);
+        List<ApproximateCooccurrencePair> pairs = new ArrayList<>(entries.size());
+        for (SpaceSavingSketch.Entry entry : entries) {
+            pairs.add(new ApproximateCooccurrencePair(
+                    names.get(entry.key() >>> 32),
+                    names.get(entry.key() & 0xFFFF_FFFFL),
+                    entry.count(),
+                    entry.error(),
+                    entry.lowerBound(),
+                    entry.guaranteed()));
+        }
+        return new ApproximateCooccurrenceResponse(top, true, sketch.capacity(), memoryBytes, trackedPairs,
+                totalPairs, maxError, pairs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (enabled) {
+            executor.execute(this::load);
+        }
+    }
+
+    /**
+     * 在数据集版本递增之前执行，拿到新版本号的请求一定看得到这批问题。
+     * 只计入新增的问题；合并模式覆写的问题已在摘要中，无法扣除旧组合，因此不重复计入。
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQuestionsImported(QuestionsImportedEvent event) {
+        if (!enabled || event.inserted().isEmpty()) {
+            return;
+        }
+        List<PendingQuestion> questions = new ArrayList<>(event.inserted().size());
+        for (MappedThread thread : event.inserted()) {
+            if (thread.tagNames().size() < 2) {
+                continue;
+            }
+            Map<String, Long> ids = tagDictionary.resolveIds(thread.tagNames());
+            long[] tagIds = ids.values().stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+            questions.add(new PendingQuestion(thread.question().getId(), tagIds));
+        }
+        synchronized (this) {
+            if (!ready) {
+                if (pending != null) {
+                    pending.addAll(questions);
+                }
+                return;
+            }
+            for (PendingQuestion question : questions) {
+                offerPairs(question.tagIds(), question.tagIds().length);
+            }
+        }
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        LongBitmap scanned = new LongBitmap();
+        try {
+            long[] current = new long[]{-1};
+            long[] tagIds = new long[16];
+            int[] tagCount = new int[1];
+            readOnlyTransaction.executeWithoutResult(status ->
+                    streamingTemplate.query(SELECT_QUESTION_TAGS, (RowCallbackHandler) rs -> {
+                        long questionId = rs.getLong(1);
+                        if (questionId != current[0]) {
+                            flush(current[0], tagIds, tagCount[0], scanned);
+                            current[0] = questionId;
+                            tagCount[0] = 0;
+                        }
+                        if (tagCount[0] == tagIds.length) {
+                            return;
+                        }
+                        tagIds[tagCount[0]++] = rs.getLong(2);
+                    }));
+            flush(current[0], tagIds, tagCount[0], scanned);
+            synchronized (this) {
+                for (PendingQuestion question : pending) {
+                    if (!scanned.contains(question.questionId())) {
+                        offerPairs(question.tagIds(), question.tagIds().length);
+                    }
+                }
+                pending = null;
+                ready = true;
+                updates++;
+            }
+            log.info("标签组合摘要建置完成，共处理 {} 个组合、追踪 {} 个，耗时 {} ms。",
+                    sketch.total(), sketch.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            log.error("建置标签组合摘要失败，近似共现查询将不可用", e);
+        }
+    }
+
+    /**
+     * Stack Overflow 每个问题最多 5 个标签，超出缓冲的标签直接忽略。
+     */
+    private void flush(long questionId, long[] tagIds, int tagCount, LongBitmap scanned) {
+        if (questionId < 0) {
+            return;
+        }
+        scanned.add(questionId);
+        if (tagCount < 2) {
+            return;
+        }
+        synchronized (this) {
+            offerPairs(tagIds, tagCount);
+        }
+    }
+
+    /**
+     * 须持有本物件的锁；{@code tagIds} 须已按 ID 递增排序且不重复。
+     */
+    private void offerPairs(long[] tagIds, int tagCount) {
+        for (int i = 0; i < tagCount; i++) {
+            for (int j = i + 1; j < tagCount; j++) {
+                sketch.offer(tagIds[i] << 32 | tagIds[j]);
+            }
+        }
+        updates++;
+    }
+
+    private Map<Long, String> tagNames(List<SpaceSavingSketch.Entry> entries) {
+        Long[] ids = entries.stream()
+                .flatMap(entry -> Stream.of(entry.key() >>> 32, entry.key() & 0xFFFF_FFFFL))
+                .distinct()
+                .toArray(Long[]::new);
+        Map<Long, String> names = new HashMap<>(ids.length * 2);
+        if (ids.length == 0) {
+            return names;
+        }
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_TAG_NAMES_BY_IDS);
+            statement.setArray(1, connection.createArrayOf("bigint", ids));
+            return statement;
+        }, (RowCallbackHandler) rs -> names.put(rs.getLong(1), rs.getString(2)));
+        return names;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record PendingQuestion(long questionId, long[] tagIds) {
+    }
+}
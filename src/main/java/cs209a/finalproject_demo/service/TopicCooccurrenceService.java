@@ -1,36 +1,318 @@
 package cs209a.finalproject_demo.service;
 
-import cs209a.finalproject_demo.repository.QuestionRepository;
-import cs209a.finalproject_demo.repository.projection.TagPairRow;
+import cs209a.finalproject_demo.model.TagStat;
+import cs209a.finalproject_demo.service.AnalyticsResultCache.CachedResult;
+import cs209a.finalproject_demo.service.dto.ApproximateCooccurrenceResponse;
+import cs209a.finalproject_demo.service.dto.CooccurrenceMetric;
 import cs209a.finalproject_demo.service.dto.TopicCooccurrencePair;
 import cs209a.finalproject_demo.service.dto.TopicCooccurrenceResponse;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
 
 @Service
 public class TopicCooccurrenceService {
 
     private static final int DEFAULT_TOP = 10;
     private static final int MIN_TOP = 1;
-    private static final int MAX_TOP = 50;
+    private static final int MAX_TOP = 200;
+    private static final int DEFAULT_MIN_ASSOCIATION_COUNT = 5;
+    private static final long SECONDS_PER_DAY = 86_400;
 
-    private final QuestionRepository questionRepository;
+    private static final String RANKED_PAIRS = """
+            WITH pairs AS (%s),
+            totals AS (%s),
+            n AS (%s)
+            SELECT
+                ta.name AS tag_a,
+                tb.name AS tag_b,
+                p.pair_count,
+                ca.question_count AS count_a,
+                cb.question_count AS count_b,
+                n.total
+            FROM pairs p
+            JOIN totals ca ON ca.tag_id = p.tag_a_id
+            JOIN totals cb ON cb.tag_id = p.tag_b_id
+            JOIN tags ta ON ta.id = p.tag_a_id
+            JOIN tags tb ON tb.id = p.tag_b_id
+            CROSS JOIN n
+            ORDER BY %s DESC, tag_a ASC, tag_b ASC
+            LIMIT :top
+            """;
 
-    public TopicCooccurrenceService(QuestionRepository questionRepository) {
-        this.questionRepository = questionRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TagPairRollupService pairRollupService;
+    private final TagDictionaryService tagDictionary;
+    private final AnalyticsResultCache resultCache;
+    private final ColumnarQuestionStore columnarStore;
+    private final TagPairSketchService pairSketch;
+
+    public TopicCooccurrenceService(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            TagPairRollupService pairRollupService,
+            TagDictionaryService tagDictionary,
+            AnalyticsResultCache resultCache,
+            ColumnarQuestionStore columnarStore,
+            TagPairSketchService pairSketch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pairRollupService = pairRollupService;
+        this.tagDictionary = tagDictionary;
+        this.resultCache = resultCache;
+        this.columnarStore = columnarStore;
+        this.pairSketch = pairSketch;
     }
 
-    public TopicCooccurrenceResponse getTopPairs(Integer requestedTop) {
+    /**
+     * @param fromDate 可选，按 UTC 创建日期（含）限定问题
+     * @param toDate   可选，按 UTC 创建日期（含）限定问题
+     * @param anchor   可选，只返回含有该标签的组合
+     * @param minCount 可选，组合至少出现的问题数；默认按次数排序时为 1，按关联度排序时为 5，以免罕见标签的偶然组合排在前面
+     */
+    public CachedResult<TopicCooccurrenceResponse> getTopPairs(
+            Integer requestedTop,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String anchor,
+            CooccurrenceMetric metric,
+            Integer minCount) {
         int top = sanitizeTop(requestedTop);
-        List<TopicCooccurrencePair> pairs = questionRepository.findTopTagPairs(top).stream()
-                .map(this::toDto)
-                .toList();
-        return new TopicCooccurrenceResponse(top, pairs);
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("Parameter 'from' must not be after 'to'.");
+        }
+        String anchorTag = normalizeAnchor(anchor);
+        int effectiveMinCount = resolveMinCount(minCount, metric);
+        return resultCache.lookup("cooccurrence",
+                Arrays.asList(top, fromDate, toDate, anchorTag, metric, effectiveMinCount),
+                () -> computeTopPairs(top, fromDate, toDate, anchorTag, metric, effectiveMinCount));
+    }
+
+    /**
+     * 近似模式：从固定内存的 Space-Saving 摘要读取前 N 个组合及其误差上界，只支持全时段按次数排序。
+     * 摘要在每个匯入批次后变化，其计入次数也作为缓存键的一部分。
+     */
+    public CachedResult<ApproximateCooccurrenceResponse> getApproximateTopPairs(Integer requestedTop) {
+        int top = sanitizeTop(requestedTop);
+        return resultCache.lookup("cooccurrence-approximate", List.of(top, pairSketch.updateCount()),
+                () -> pairSketch.topPairs(top));
+    }
+
+    /**
+     * 不限时间区间且 {@code tag_pair_stats} 已就绪时直接读取预先计算的组合次数；否则有列式存储时在快照上计数，
+     * 再不然才对区间内的 {@code question_tags} 做自连接。
+     */
+    private TopicCooccurrenceResponse computeTopPairs(
+            int top,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String anchor,
+            CooccurrenceMetric metric,
+            int minCount) {
+        boolean windowed = fromDate != null || toDate != null;
+        ColumnarQuestionStore.Snapshot snapshot = columnarStore.snapshot();
+        List<TopicCooccurrencePair> pairs;
+        if (snapshot != null && (windowed || !pairRollupService.isReady())) {
+            pairs = rankColumnar(snapshot, top, fromDate, toDate, anchor, metric, minCount);
+        } else {
+            pairs = rankInDatabase(top, fromDate, toDate, anchor, metric, minCount);
+        }
+        return new TopicCooccurrenceResponse(top, metric, anchor, fromDate, toDate, minCount, pairs.stream()
+                .map(pair -> pair.anchoredOn(anchor))
+                .toList());
     }
 
-    private TopicCooccurrencePair toDto(TagPairRow row) {
-        return new TopicCooccurrencePair(row.getTagA(), row.getTagB(), row.getPairCount());
+    /**
+     * 组合次数、各标签的问题数与问题总数都在同一条查询中算出，排序与截取也交给数据库
+     * （{@code ORDER BY ... LIMIT} 以大小为 {@code top} 的堆排序，不会排序全部组合）。
+     * <p>
+     * 不限时间区间且汇总表就绪时，各标签的问题数与问题总数读自 {@code tag_stats}；按次数排序时先经
+     * {@code question_count} 降序索引找出第 {@code top} 名的次数，只取不低于它的组合（同分者一并保留，以便按名称决定名次），
+     * 再按主键读取这些组合涉及的标签，耗时只与 {@code top} 有关。只有限定时间区间时才需要对区间内的问题做全量聚合。
+     */
+    private List<TopicCooccurrencePair> rankInDatabase(
+            int top,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String anchor,
+            CooccurrenceMetric metric,
+            int minCount) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("top", top)
+                .addValue("min_count", minCount);
+        List<String> window = new ArrayList<>();
+        if (fromDate != null) {
+            window.add("q.creation_day >= :from_day");
+            params.addValue("from_day", fromDate);
+        }
+        if (toDate != null) {
+            window.add("q.creation_day < :to_day");
+            params.addValue("to_day", toDate.plusDays(1));
+        }
+        if (anchor != null) {
+            params.addValue("anchor", tagDictionary.findId(anchor).orElseThrow());
+        }
+
+        String pairs;
+        String totals;
+        String total;
+        if (window.isEmpty() && pairRollupService.isReady()) {
+            pairs = "SELECT tag_a_id, tag_b_id, question_count AS pair_count FROM tag_pair_stats"
+                    + " WHERE question_count >= :min_count"
+                    + (anchor == null ? "" : " AND (tag_a_id = :anchor OR tag_b_id = :anchor)");
+            totals = "SELECT tag_id, question_count FROM tag_stats WHERE tag_id <> " + TagStat.TOTAL_TAG_ID;
+            if (metric == CooccurrenceMetric.COUNT) {
+                params.addValue("cutoff_offset", top - 1);
+                pairs = "SELECT * FROM (" + pairs + ") candidates"
+                        + " WHERE pair_count >= COALESCE((SELECT pair_count FROM (" + pairs + ") ranked"
+                        + " ORDER BY pair_count DESC OFFSET :cutoff_offset LIMIT 1), 0)";
+                totals += " AND tag_id IN (SELECT tag_a_id FROM pairs UNION SELECT tag_b_id FROM pairs)";
+            }
+            total = "SELECT question_count AS total FROM tag_stats WHERE tag_id = " + TagStat.TOTAL_TAG_ID;
+        } else {
+            List<String> conditions = new ArrayList<>(window);
+            if (anchor != null) {
+                conditions.add("qt1.question_id IN (SELECT question_id FROM question_tags WHERE tag_id = :anchor)");
+                conditions.add("(qt1.tag_id = :anchor OR qt2.tag_id = :anchor)");
+            }
+            pairs = "SELECT qt1.tag_id AS tag_a_id, qt2.tag_id AS tag_b_id, COUNT(*) AS pair_count"
+                    + " FROM question_tags qt1"
+                    + " JOIN question_tags qt2 ON qt2.question_id = qt1.question_id AND qt1.tag_id < qt2.tag_id"
+                    + (window.isEmpty() ? "" : " JOIN questions q ON q.id = qt1.question_id")
+                    + where(conditions)
+                    + " GROUP BY 1, 2 HAVING COUNT(*) >= :min_count";
+            totals = "SELECT qt.tag_id, COUNT(*) AS question_count FROM question_tags qt"
+                    + (window.isEmpty() ? "" : " JOIN questions q ON q.id = qt.question_id")
+                    + where(window)
+                    + " GROUP BY qt.tag_id";
+            total = "SELECT COUNT(*) AS total FROM questions q" + where(window);
+        }
+
+        String sql = String.format(RANKED_PAIRS, pairs, totals, total, scoreExpression(metric));
+        return jdbcTemplate.query(sql, params, (rs, rowNum) -> TopicCooccurrencePair.of(
+                rs.getString("tag_a"),
+                rs.getString("tag_b"),
+                rs.getLong("pair_count"),
+                rs.getLong("count_a"),
+                rs.getLong("count_b"),
+                rs.getLong("total")));
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static String scoreExpression(CooccurrenceMetric metric) {
+        return switch (metric) {
+            case COUNT -> "p.pair_count";
+            // PMI 是 lift 的对数，排序相同
+            case LIFT, PMI -> "CAST(p.pair_count AS double precision) * n.total"
+                    + " / (CAST(ca.question_count AS double precision) * cb.question_count)";
+            case JACCARD -> "CAST(p.pair_count AS double precision)"
+                    + " / (ca.question_count + cb.question_count - p.pair_count)";
+        };
+    }
+
+    /**
+     * 单次遍历快照中区间内的问题：累计问题总数与每个标签的问题数，并把标签两两组合
+     * （有锚点时只有锚点与其它标签的组合）计入计数表；之后以大小为 {@code top} 的堆挑出得分最高的组合。
+     */
+    private List<TopicCooccurrencePair> rankColumnar(
+            ColumnarQuestionStore.Snapshot snapshot,
+            int top,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String anchor,
+            CooccurrenceMetric metric,
+            int minCount) {
+        boolean windowed = fromDate != null || toDate != null;
+        long fromSecond = fromDate == null ? Long.MIN_VALUE : fromDate.toEpochDay() * SECONDS_PER_DAY;
+        long toSecond = toDate == null ? Long.MAX_VALUE : toDate.plusDays(1).toEpochDay() * SECONDS_PER_DAY;
+        Integer anchorId = anchor == null ? null : columnarStore.tagId(anchor);
+        if (anchor != null && anchorId == null) {
+            return List.of();
+        }
+        int anchorTag = anchorId == null ? -1 : anchorId;
+
+        long[] total = new long[1];
+        int[] tagCounts = new int[snapshot.tagIdLimit()];
+        int[] anchorPairs = anchorId == null ? null : new int[snapshot.tagIdLimit()];
+        PairCounter counter = anchorId == null ? new PairCounter() : null;
+        snapshot.forEach((segment, row) -> {
+            if (windowed) {
+                long created = segment.created(row);
+                if (created == ColumnarQuestionStore.NO_DATE || created < fromSecond || created >= toSecond) {
+                    return;
+                }
+            }
+            total[0]++;
+            int start = segment.tagStart(row);
+            int end = segment.tagEnd(row);
+            for (int i = start; i < end; i++) {
+                tagCounts[segment.tagIdAt(i)]++;
+            }
+            if (anchorPairs != null) {
+                if (segment.hasTag(row, anchorTag)) {
+                    for (int i = start; i < end; i++) {
+                        anchorPairs[segment.tagIdAt(i)]++;
+                    }
+                }
+                return;
+            }
+            for (int i = start; i < end; i++) {
+                long first = (long) segment.tagIdAt(i) << 32;
+                for (int j = i + 1; j < end; j++) {
+                    counter.increment(first | segment.tagIdAt(j));
+                }
+            }
+        });
+
+        TopPairs best = new TopPairs(top, metric, total[0]);
+        if (anchorPairs != null) {
+            for (int other = 0; other < anchorPairs.length; other++) {
+                if (other != anchorTag && anchorPairs[other] >= minCount) {
+                    int tagA = Math.min(anchorTag, other);
+                    int tagB = Math.max(anchorTag, other);
+                    best.offer(tagA, tagB, anchorPairs[other], tagCounts[tagA], tagCounts[tagB]);
+                }
+            }
+        } else {
+            for (int slot = 0; slot < counter.keys.length; slot++) {
+                if (counter.counts[slot] >= minCount) {
+                    int tagA = (int) (counter.keys[slot] >>> 32);
+                    int tagB = (int) counter.keys[slot];
+                    best.offer(tagA, tagB, counter.counts[slot], tagCounts[tagA], tagCounts[tagB]);
+                }
+            }
+        }
+        return best.sorted();
+    }
+
+    private String normalizeAnchor(String anchor) {
+        if (anchor == null || anchor.isBlank()) {
+            return null;
+        }
+        String tag = anchor.trim().toLowerCase(Locale.ENGLISH);
+        if (!tagDictionary.exists(tag)) {
+            throw new IllegalArgumentException("Invalid tags: " + tag);
+        }
+        return tag;
+    }
+
+    private int resolveMinCount(Integer minCount, CooccurrenceMetric metric) {
+        if (minCount == null) {
+            return metric == CooccurrenceMetric.COUNT ? 1 : DEFAULT_MIN_ASSOCIATION_COUNT;
+        }
+        if (minCount < 1) {
+            throw new IllegalArgumentException("Parameter 'minCount' must be at least 1.");
+        }
+        return minCount;
     }
 
     private int sanitizeTop(Integer requestedTop) {
@@ -43,4 +325,100 @@ public class TopicCooccurrenceService {
         }
         return requestedTop;
     }
+
+    /**
+     * 大小为 {@code top} 的最小堆：得分不超过堆顶的候选在换成名称与建立物件之前就被丢弃。
+     * 同分时按标签名称排序，与数据库路径一致。
+     */
+    private final class TopPairs {
+
+        private final int top;
+        private final CooccurrenceMetric metric;
+        private final long total;
+        private final Comparator<Ranked> order = Comparator.comparingDouble(Ranked::score).reversed()
+                .thenComparing(ranked -> ranked.pair().tagA())
+                .thenComparing(ranked -> ranked.pair().tagB());
+        private final PriorityQueue<Ranked> heap;
+
+        private TopPairs(int top, CooccurrenceMetric metric, long total) {
+            this.top = top;
+            this.metric = metric;
+            this.total = total;
+            this.heap = new PriorityQueue<>(top + 1, order.reversed());
+        }
+
+        private void offer(int tagA, int tagB, long pairCount, long countA, long countB) {
+            double score = metric.score(pairCount, countA, countB, total);
+            if (heap.size() == top && score < heap.peek().score()) {
+                return;
+            }
+            heap.add(new Ranked(score, TopicCooccurrencePair.of(
+                    columnarStore.tagName(tagA), columnarStore.tagName(tagB), pairCount, countA, countB, total)));
+            if (heap.size() > top) {
+                heap.poll();
+            }
+        }
+
+        private List<TopicCooccurrencePair> sorted() {
+            List<Ranked> ranked = new ArrayList<>(heap);
+            ranked.sort(order);
+            return ranked.stream().map(Ranked::pair).toList();
+        }
+    }
+
+    private record Ranked(double score, TopicCooccurrencePair pair) {
+    }
+
+    /**
+     * 以 long 为键的线性探测计数表；键为两个非负的 int 标签 ID，因此不会出现保留的空键 -1。
+     */
+    private static final class PairCounter {
+
+        private static final long EMPTY = -1L;
+
+        private long[] keys = newKeys(1 << 12);
+        private int[] counts = new int[1 << 12];
+        private int size;
+
+        private void increment(long key) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    counts[slot]++;
+                    grow();
+                    return;
+                }
+            }
+            counts[slot]++;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = newKeys(oldKeys.length * 2);
+            counts = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = Long.hashCode(oldKeys[i] * 0x9E3779B97F4A7C15L) & mask;
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
 }
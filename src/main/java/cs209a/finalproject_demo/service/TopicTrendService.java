@@ -1,12 +1,14 @@
 package cs209a.finalproject_demo.service;
 
 import cs209a.finalproject_demo.repository.QuestionRepository;
-import cs209a.finalproject_demo.repository.TagRepository;
+import cs209a.finalproject_demo.repository.TagMonthStatRepository;
 import cs209a.finalproject_demo.repository.projection.TopicTrendRow;
+import cs209a.finalproject_demo.service.AnalyticsResultCache.CachedResult;
 import cs209a.finalproject_demo.service.dto.TopicTrendMetric;
 import cs209a.finalproject_demo.service.dto.TopicTrendPoint;
 import cs209a.finalproject_demo.service.dto.TopicTrendResponse;
 import cs209a.finalproject_demo.service.dto.TopicTrendSeries;
+import cs209a.finalproject_demo.service.dto.TrendBucket;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
@@ -14,6 +16,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -30,64 +33,303 @@ public class TopicTrendService {
             "lambda",
             "collections");
 
+    private static final int MAX_BUCKETS = 5000;
+
+    private static final int MAX_WINDOW = 366;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
     private final QuestionRepository questionRepository;
-    private final TagRepository tagRepository;
+    private final TagMonthStatRepository tagMonthStatRepository;
+    private final TagMonthRollupService rollupService;
+    private final TagDictionaryService tagDictionary;
+    private final AnalyticsResultCache resultCache;
+    private final ColumnarQuestionStore columnarStore;
 
-    public TopicTrendService(QuestionRepository questionRepository, TagRepository tagRepository) {
+    public TopicTrendService(
+            QuestionRepository questionRepository,
+            TagMonthStatRepository tagMonthStatRepository,
+            TagMonthRollupService rollupService,
+            TagDictionaryService tagDictionary,
+            AnalyticsResultCache resultCache,
+            ColumnarQuestionStore columnarStore) {
         this.questionRepository = questionRepository;
-        this.tagRepository = tagRepository;
+        this.tagMonthStatRepository = tagMonthStatRepository;
+        this.rollupService = rollupService;
+        this.tagDictionary = tagDictionary;
+        this.resultCache = resultCache;
+        this.columnarStore = columnarStore;
     }
 
-    public TopicTrendResponse getTrends(
+    public CachedResult<TopicTrendResponse> getTrends(
             List<String> tags,
             LocalDate fromDate,
             LocalDate toDate,
             String bucket,
-            TopicTrendMetric metric) {
+            List<TopicTrendMetric> metrics,
+            int window,
+            boolean yoy) {
+        if (window < 0 || window > MAX_WINDOW) {
+            throw new IllegalArgumentException(String.format(
+                    "Parameter 'window' must be between 0 and %d.", MAX_WINDOW));
+        }
         List<String> effectiveTags = normalizeTags(tags);
-        String bucketSize = normalizeBucket(bucket);
+        TrendBucket bucketSize = TrendBucket.from(bucket);
         Instant fromInstant = resolveFromInstant(fromDate);
         Instant toInstant = resolveToInstant(toDate);
-        boolean isYearBucket = "year".equals(bucketSize);
+        List<LocalDate> bucketStarts = bucketStarts(
+                bucketSize,
+                LocalDate.ofInstant(fromInstant, ZoneOffset.UTC),
+                LocalDate.ofInstant(toInstant, ZoneOffset.UTC));
+        return resultCache.lookup("trends",
+                List.of(effectiveTags, fromInstant, toInstant, bucketSize, metrics, window, yoy),
+                () -> computeTrends(effectiveTags, fromInstant, toInstant, bucketSize, bucketStarts, metrics, window, yoy));
+    }
 
-        List<TopicTrendRow> rows = questionRepository.findTopicTrends(
-                effectiveTags.toArray(String[]::new),
-                fromInstant,
-                toInstant,
-                isYearBucket);
-
-        Map<String, List<TopicTrendPoint>> seriesMap = initSeriesMap(effectiveTags);
-        for (TopicTrendRow row : rows) {
-            long value = metric == TopicTrendMetric.SCORE
-                    ? safeLong(row.getScoreSum())
-                    : safeLong(row.getQuestionCount());
-            List<TopicTrendPoint> points = seriesMap.computeIfAbsent(row.getTag(), key -> new ArrayList<>());
-            points.add(new TopicTrendPoint(
-                    row.getBucket(),
-                    safeLong(row.getQuestionCount()),
-                    safeLong(row.getScoreSum()),
-                    value));
-        }
-
-        List<TopicTrendSeries> series = seriesMap.entrySet().stream()
-                .map(entry -> new TopicTrendSeries(entry.getKey(), metric, entry.getValue()))
-                .toList();
+    /**
+     * 滑动窗口与同比需要区间之前的数据：另行读取向前延伸的 {@code window - 1} 个桶，要求同比时再延伸到一年前，
+     * 延伸部分只参与计算，不出现在结果中。每个标签按时间顺序单次遍历所有桶，
+     * 窗口总和随遍历加入新桶、减去移出窗口的桶，同比直接查一年前同一桶的总和；
+     * 任一方是被 {@code from} / {@code to} 截断的首尾桶时，同比为 {@code null}。
+     */
+    private TopicTrendResponse computeTrends(
+            List<String> effectiveTags,
+            Instant fromInstant,
+            Instant toInstant,
+            TrendBucket bucketSize,
+            List<LocalDate> bucketStarts,
+            List<TopicTrendMetric> metrics,
+            int window,
+            boolean yoy) {
+        LocalDate firstBucket = bucketStarts.get(0);
+        LocalDate historyStart = firstBucket;
+        for (int i = 1; i < window; i++) {
+            historyStart = bucketSize.start(historyStart.minusDays(1));
+        }
+        if (yoy) {
+            LocalDate lastYear = bucketSize.start(firstBucket.minusYears(1));
+            historyStart = lastYear.isBefore(historyStart) ? lastYear : historyStart;
+        }
+        List<LocalDate> allStarts = new ArrayList<>();
+        for (LocalDate start = historyStart; start.isBefore(firstBucket); start = bucketSize.next(start)) {
+            allStarts.add(start);
+        }
+        int skipped = allStarts.size();
+        allStarts.addAll(bucketStarts);
+
+        long[] startDays = allStarts.stream().mapToLong(LocalDate::toEpochDay).toArray();
+        LocalDate fromDay = LocalDate.ofInstant(fromInstant, ZoneOffset.UTC);
+        LocalDate toDay = LocalDate.ofInstant(toInstant, ZoneOffset.UTC);
+        // 首尾的桶可能只含区间内的部分日期，与一年前的完整桶相比没有意义
+        int partialFirst = fromDay.isAfter(firstBucket) ? skipped : -1;
+        int partialLast = bucketSize.next(allStarts.get(allStarts.size() - 1)).isAfter(toDay)
+                ? allStarts.size() - 1
+                : -1;
+
+        // 每个标签按桶下标各有一组总和，没有问题的桶以 0 返回
+        Map<String, long[][]> totals = new LinkedHashMap<>();
+        for (String tag : effectiveTags) {
+            totals.put(tag, new long[allStarts.size()][TopicTrendMetric.SUM_COUNT]);
+        }
+        // 结果区间仍从 from 起算；延伸的历史只含 from 所在桶之前的完整桶，
+        // 因此第一个桶的数值与是否要求滑动窗口或同比无关
+        String[] tagArray = effectiveTags.toArray(String[]::new);
+        accumulate(tagArray, fromDay, toDay, bucketSize, startDays, totals);
+        if (skipped > 0) {
+            accumulate(tagArray, historyStart, firstBucket, bucketSize, startDays, totals);
+        }
+
+        TopicTrendMetric primary = metrics.get(0);
+        List<TopicTrendSeries> series = new ArrayList<>();
+        for (Map.Entry<String, long[][]> entry : totals.entrySet()) {
+            long[][] ordered = entry.getValue();
+            long[] windowSums = new long[TopicTrendMetric.SUM_COUNT];
+            List<TopicTrendPoint> points = new ArrayList<>(bucketStarts.size());
+            for (int i = 0; i < ordered.length; i++) {
+                long[] sums = ordered[i];
+                addInto(windowSums, sums, 1);
+                if (window > 0 && i >= window) {
+                    addInto(windowSums, ordered[i - window], -1);
+                }
+                if (i < skipped) {
+                    continue;
+                }
+                LocalDate start = allStarts.get(i);
+                Map<TopicTrendMetric, Double> values = new LinkedHashMap<>();
+                metrics.forEach(metric -> values.put(metric, metric.evaluate(sums)));
+                Map<TopicTrendMetric, Double> movingAverages = null;
+                if (window > 0) {
+                    movingAverages = new LinkedHashMap<>();
+                    for (TopicTrendMetric metric : metrics) {
+                        Double windowValue = metric.evaluate(windowSums);
+                        movingAverages.put(metric, metric.isRatio() || windowValue == null
+                                ? windowValue
+                                : windowValue / window);
+                    }
+                }
+                Map<TopicTrendMetric, Double> yearOverYear = null;
+                if (yoy) {
+                    int lastYearIndex = Arrays.binarySearch(
+                            startDays, bucketSize.start(start.minusYears(1)).toEpochDay());
+                    boolean partial = i == partialFirst || i == partialLast
+                            || lastYearIndex == partialFirst || lastYearIndex == partialLast;
+                    long[] lastYear = lastYearIndex < 0 || partial ? null : ordered[lastYearIndex];
+                    yearOverYear = new LinkedHashMap<>();
+                    for (TopicTrendMetric metric : metrics) {
+                        Double current = values.get(metric);
+                        Double previous = lastYear == null ? null : metric.evaluate(lastYear);
+                        yearOverYear.put(metric, current == null || previous == null ? null : current - previous);
+                    }
+                }
+                points.add(new TopicTrendPoint(
+                        atStartOfDayUtc(start),
+                        sums[TopicTrendMetric.SUM_QUESTIONS],
+                        sums[TopicTrendMetric.SUM_SCORE],
+                        values.get(primary),
+                        values,
+                        movingAverages,
+                        yearOverYear));
+            }
+            series.add(new TopicTrendSeries(entry.getKey(), primary, points));
+        }
 
         return new TopicTrendResponse(
                 effectiveTags,
                 fromInstant,
                 toInstant,
-                bucketSize,
-                metric,
+                bucketSize.label(),
+                primary,
+                metrics,
+                window,
+                yoy,
                 series);
     }
 
-    private Map<String, List<TopicTrendPoint>> initSeriesMap(List<String> tags) {
-        Map<String, List<TopicTrendPoint>> map = new LinkedHashMap<>();
+    /**
+     * 把 {@code [fromDay, toDay)} 内的问题按桶下标累计到 {@code totals}；{@code startDays} 为各桶起点的纪元日，
+     * 须涵盖整个区间。列式存储可用时一律从中累计，不查询数据库。
+     */
+    private void accumulate(
+            String[] tags,
+            LocalDate fromDay,
+            LocalDate toDay,
+            TrendBucket bucket,
+            long[] startDays,
+            Map<String, long[][]> totals) {
+        ColumnarQuestionStore.Snapshot snapshot = columnarStore.snapshot();
+        if (snapshot != null) {
+            accumulateColumnar(snapshot, tags, fromDay, toDay, startDays, totals);
+            return;
+        }
+        for (TopicTrendRow row : loadTrendRows(tags, fromDay, toDay, bucket)) {
+            long[][] tagTotals = totals.get(row.getTag());
+            int index = bucketIndex(startDays, Math.floorDiv(row.getBucket().getEpochSecond(), SECONDS_PER_DAY));
+            if (tagTotals == null || index < 0) {
+                continue;
+            }
+            long[] sums = tagTotals[index];
+            sums[TopicTrendMetric.SUM_QUESTIONS] += safeLong(row.getQuestionCount());
+            sums[TopicTrendMetric.SUM_SCORE] += safeLong(row.getScoreSum());
+            sums[TopicTrendMetric.SUM_VIEWS] += safeLong(row.getViewSum());
+            sums[TopicTrendMetric.SUM_ANSWERS] += safeLong(row.getAnswerSum());
+            sums[TopicTrendMetric.SUM_ACCEPTED] += safeLong(row.getAcceptedCount());
+        }
+    }
+
+    /**
+     * 按日或按周时直接以 {@code creation_day} 索引读取基础表的每日计数。
+     * 按月、季、年时完整月份从 {@code tag_month_stats} 读取，{@code from} / {@code to} 落在月中时，
+     * 首尾不完整的部分仍按日读取基础表（范围最多各一个月）。
+     */
+    private List<TopicTrendRow> loadTrendRows(String[] tags, LocalDate fromDay, LocalDate toDay, TrendBucket bucket) {
+        if (!bucket.spansWholeMonths() || !rollupService.isReady()) {
+            return questionRepository.findDailyTopicCounts(tags, fromDay, toDay);
+        }
+        LocalDate firstFullMonth = fromDay.getDayOfMonth() == 1 ? fromDay : fromDay.withDayOfMonth(1).plusMonths(1);
+        LocalDate endOfFullMonths = toDay.withDayOfMonth(1);
+        if (!firstFullMonth.isBefore(endOfFullMonths)) {
+            return questionRepository.findDailyTopicCounts(tags, fromDay, toDay);
+        }
+        List<TopicTrendRow> rows = new ArrayList<>(tagMonthStatRepository.findMonthlyTopicCounts(
+                tags, atStartOfDayUtc(firstFullMonth), atStartOfDayUtc(endOfFullMonths)));
+        if (fromDay.isBefore(firstFullMonth)) {
+            rows.addAll(questionRepository.findDailyTopicCounts(tags, fromDay, firstFullMonth));
+        }
+        if (endOfFullMonths.isBefore(toDay)) {
+            rows.addAll(questionRepository.findDailyTopicCounts(tags, endOfFullMonths, toDay));
+        }
+        return rows;
+    }
+
+    /**
+     * 经由标签倒排表只走访相关的行，把五项总和直接累计到桶下标的数组中，循环内不配置物件。
+     * 区间先收窄到快照实际的创建时间范围，完全没有交集时不走访任何行。
+     */
+    private void accumulateColumnar(
+            ColumnarQuestionStore.Snapshot snapshot,
+            String[] tags,
+            LocalDate fromDay,
+            LocalDate toDay,
+            long[] startDays,
+            Map<String, long[][]> totals) {
+        long fromSecond = Math.max(fromDay.toEpochDay() * SECONDS_PER_DAY, snapshot.minCreated());
+        long toSecond = Math.min(toDay.toEpochDay() * SECONDS_PER_DAY, snapshot.maxCreated() + 1);
+        if (fromSecond >= toSecond) {
+            return;
+        }
         for (String tag : tags) {
-            map.put(tag, new ArrayList<>());
+            Integer tagId = columnarStore.tagId(tag);
+            if (tagId == null) {
+                continue;
+            }
+            long[][] tagTotals = totals.get(tag);
+            snapshot.forEachTagged(tagId, (segment, row) -> {
+                long created = segment.created(row);
+                if (created < fromSecond || created >= toSecond) {
+                    return;
+                }
+                int index = bucketIndex(startDays, Math.floorDiv(created, SECONDS_PER_DAY));
+                if (index < 0) {
+                    return;
+                }
+                long[] sums = tagTotals[index];
+                sums[TopicTrendMetric.SUM_QUESTIONS]++;
+                sums[TopicTrendMetric.SUM_SCORE] += segment.score(row);
+                sums[TopicTrendMetric.SUM_VIEWS] += segment.views(row);
+                if (!segment.hasFlag(row, ColumnarQuestionStore.FLAG_ANSWER_COUNT_NULL)) {
+                    sums[TopicTrendMetric.SUM_ANSWERS] += segment.answers(row);
+                }
+                if (segment.hasFlag(row, ColumnarQuestionStore.FLAG_HAS_ACCEPTED_ID)) {
+                    sums[TopicTrendMetric.SUM_ACCEPTED]++;
+                }
+            });
+        }
+    }
+
+    /**
+     * @return 起点不晚于 {@code epochDay} 的最后一个桶的下标；早于第一个桶时为 -1
+     */
+    private static int bucketIndex(long[] startDays, long epochDay) {
+        int index = Arrays.binarySearch(startDays, epochDay);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * 区间内所有时间桶的起点；首个桶可能早于 {@code fromDay}（例如月中开始的按月统计）。
+     */
+    private List<LocalDate> bucketStarts(TrendBucket bucket, LocalDate fromDay, LocalDate toDay) {
+        if (!fromDay.isBefore(toDay)) {
+            throw new IllegalArgumentException("Parameter 'from' must not be after 'to'.");
+        }
+        List<LocalDate> starts = new ArrayList<>();
+        for (LocalDate start = bucket.start(fromDay); start.isBefore(toDay); start = bucket.next(start)) {
+            if (starts.size() == MAX_BUCKETS) {
+                throw new IllegalArgumentException(String.format(
+                        "The requested range spans more than %d %s buckets.", MAX_BUCKETS, bucket.label()));
+            }
+            starts.add(start);
         }
-        return map;
+        return starts;
     }
 
     private List<String> normalizeTags(List<String> tags) {
@@ -114,14 +356,7 @@ public class TopicTrendService {
     }
 
     private boolean isValidTag(String tag) {
-        return tagRepository.findByName(tag).isPresent();
-    }
-
-    private String normalizeBucket(String bucket) {
-        if ("year".equalsIgnoreCase(bucket)) {
-            return "year";
-        }
-        return "month";
+        return tagDictionary.exists(tag);
     }
 
     private Instant resolveFromInstant(LocalDate fromDate) {
@@ -142,6 +377,12 @@ public class TopicTrendService {
         return date.atStartOfDay(ZoneOffset.UTC).toInstant();
     }
 
+    private static void addInto(long[] target, long[] sums, int sign) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += sign * sums[i];
+        }
+    }
+
     private long safeLong(Long value) {
         return value == null ? 0L : value;
     }
@@ -0,0 +1,14 @@
+package cs209a.finalproject_demo.service.dto;
+
+/**
+ * 近似模式下的一对标签：真实共现次数介于 {@code lowerBound} 与 {@code estimatedCount} 之间。
+ * {@code guaranteed} 为 {@code true} 时该组合一定属于真实的前 N 名。
+ */
+public record ApproximateCooccurrencePair(
+        String tagA,
+        String tagB,
+        long estimatedCount,
+        long maxOvercount,
+        long lowerBound,
+        boolean guaranteed) {
+}
@@ -0,0 +1,18 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.util.List;
+
+/**
+ * {@code maxError} 是所有估计值高估次数的上界，不超过 {@code totalPairs / capacity}；
+ * 未出现在摘要中的组合真实次数也不超过它。摘要尚未建好时 {@code ready} 为 {@code false}，{@code pairs} 为空。
+ */
+public record ApproximateCooccurrenceResponse(
+        int top,
+        boolean ready,
+        int capacity,
+        long memoryBytes,
+        int trackedPairs,
+        long totalPairs,
+        long maxError,
+        List<ApproximateCooccurrencePair> pairs) {
+}
@@ -0,0 +1,40 @@
+package cs209a.finalproject_demo.service.dto;
+
+/**
+ * 标签组合的排序依据。{@code n} 为区间内的问题数，{@code a}、{@code b} 为各自带有两个标签的问题数，
+ * {@code ab} 为同时带有两者的问题数。
+ */
+public enum CooccurrenceMetric {
+    /** {@code ab}。 */
+    COUNT,
+    /** {@code ab * n / (a * b)}：大于 1 表示比各自独立出现时更常一起出现。 */
+    LIFT,
+    /** {@code log2(lift)}，排序与 lift 相同。 */
+    PMI,
+    /** {@code ab / (a + b - ab)}。 */
+    JACCARD;
+
+    public static CooccurrenceMetric from(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return COUNT;
+        }
+        try {
+            return CooccurrenceMetric.valueOf(raw.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid metric: " + raw.trim());
+        }
+    }
+
+    public double score(long pairCount, long countA, long countB, long total) {
+        return switch (this) {
+            case COUNT -> pairCount;
+            case LIFT -> lift(pairCount, countA, countB, total);
+            case PMI -> Math.log(lift(pairCount, countA, countB, total)) / Math.log(2);
+            case JACCARD -> (double) pairCount / (countA + countB - pairCount);
+        };
+    }
+
+    private static double lift(long pairCount, long countA, long countB, long total) {
+        return (double) pairCount * total / ((double) countA * countB);
+    }
+}
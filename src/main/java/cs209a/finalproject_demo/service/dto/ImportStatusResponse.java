@@ -0,0 +1,19 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.time.Instant;
+
+public record ImportStatusResponse(
+        String state,
+        String source,
+        long target,
+        Instant startedAt,
+        Instant finishedAt,
+        long scanned,
+        long imported,
+        long updated,
+        long skipped,
+        long failed,
+        double ratePerSecond,
+        Long etaSeconds,
+        String error) {
+}
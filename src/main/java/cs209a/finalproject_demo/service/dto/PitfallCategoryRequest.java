@@ -0,0 +1,6 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.util.List;
+
+public record PitfallCategoryRequest(String name, List<String> patterns) {
+}
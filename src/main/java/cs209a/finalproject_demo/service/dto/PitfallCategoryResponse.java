@@ -0,0 +1,6 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.util.List;
+
+public record PitfallCategoryResponse(long id, String name, List<String> patterns) {
+}
@@ -0,0 +1,14 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.util.List;
+
+/**
+ * @param version  目前生效的已编译规则版本，每次增删改后递增
+ * @param upToDate {@code question_pitfalls} 是否已按此版本回填完成
+ */
+public record PitfallTaxonomyResponse(
+        long version,
+        String taxonomyHash,
+        boolean upToDate,
+        List<PitfallCategoryResponse> categories) {
+}
@@ -0,0 +1,8 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.time.Instant;
+
+public record PitfallTrendPoint(
+        Instant bucket,
+        long questionCount) {
+}
@@ -0,0 +1,11 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record PitfallTrendResponse(
+        Instant from,
+        Instant to,
+        String bucket,
+        List<PitfallTrendSeries> series) {
+}
@@ -0,0 +1,8 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.util.List;
+
+public record PitfallTrendSeries(
+        String category,
+        List<PitfallTrendPoint> points) {
+}
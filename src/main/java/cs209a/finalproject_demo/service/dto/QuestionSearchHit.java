@@ -0,0 +1,15 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record QuestionSearchHit(
+        long questionId,
+        String title,
+        String snippet,
+        List<String> tags,
+        Integer score,
+        Integer answerCount,
+        Instant creationDate,
+        double rank) {
+}
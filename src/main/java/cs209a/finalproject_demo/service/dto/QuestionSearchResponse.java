@@ -0,0 +1,13 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.util.List;
+
+/**
+ * @param nextCursor 传回同一接口的 {@code cursor} 参数即可取得下一页，没有更多结果时为 {@code null}
+ */
+public record QuestionSearchResponse(
+        String query,
+        String sort,
+        List<QuestionSearchHit> results,
+        String nextCursor) {
+}
@@ -0,0 +1,14 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.util.List;
+
+/**
+ * {@code internalWeight} 为群内标签两两共现次数之和，{@code externalWeight} 为连到群外的部分。
+ */
+public record TagCluster(
+        int id,
+        int size,
+        long internalWeight,
+        long externalWeight,
+        List<TagClusterMember> tags) {
+}
@@ -0,0 +1,7 @@
+package cs209a.finalproject_demo.service.dto;
+
+/**
+ * {@code weight} 为该标签所有共现边的权重和，{@code internalWeight} 为其中连到同群标签的部分。
+ */
+public record TagClusterMember(String tag, long weight, long internalWeight) {
+}
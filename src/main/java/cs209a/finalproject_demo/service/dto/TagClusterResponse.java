@@ -0,0 +1,15 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.util.List;
+
+public record TagClusterResponse(
+        int minWeight,
+        int minClusterSize,
+        int maxIterations,
+        int iterations,
+        boolean converged,
+        int tagCount,
+        int edgeCount,
+        double modularity,
+        List<TagCluster> clusters) {
+}
@@ -1,7 +1,34 @@
 package cs209a.finalproject_demo.service.dto;
 
+/**
+ * 指定锚点标签时 {@code tagA} 一律为锚点。
+ */
 public record TopicCooccurrencePair(
         String tagA,
         String tagB,
-        long questionCount) {
+        long questionCount,
+        long tagACount,
+        long tagBCount,
+        double lift,
+        double pmi,
+        double jaccard) {
+
+    public static TopicCooccurrencePair of(
+            String tagA,
+            String tagB,
+            long questionCount,
+            long tagACount,
+            long tagBCount,
+            long totalQuestions) {
+        return new TopicCooccurrencePair(tagA, tagB, questionCount, tagACount, tagBCount,
+                CooccurrenceMetric.LIFT.score(questionCount, tagACount, tagBCount, totalQuestions),
+                CooccurrenceMetric.PMI.score(questionCount, tagACount, tagBCount, totalQuestions),
+                CooccurrenceMetric.JACCARD.score(questionCount, tagACount, tagBCount, totalQuestions));
+    }
+
+    public TopicCooccurrencePair anchoredOn(String anchor) {
+        return anchor == null || anchor.equals(tagA)
+                ? this
+                : new TopicCooccurrencePair(tagB, tagA, questionCount, tagBCount, tagACount, lift, pmi, jaccard);
+    }
 }
@@ -1,8 +1,14 @@
 package cs209a.finalproject_demo.service.dto;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public record TopicCooccurrenceResponse(
         int top,
+        CooccurrenceMetric metric,
+        String anchor,
+        LocalDate from,
+        LocalDate to,
+        int minCount,
         List<TopicCooccurrencePair> pairs) {
 }
@@ -1,17 +1,79 @@
 package cs209a.finalproject_demo.service.dto;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 趋势指标。每个时间桶先累计问题数、得分、浏览、回答数与已采纳问题数五项总和
+ * （下标见 {@code QUESTIONS} 至 {@code ACCEPTED} 常量），指标都由这些总和算出；
+ * 比率类指标在滚动窗口中按窗口内总和之比计算，而不是对各桶比率取平均。
+ */
 public enum TopicTrendMetric {
-    QUESTIONS,
-    SCORE;
+    QUESTIONS(false),
+    SCORE(false),
+    VIEWS(false),
+    ANSWERS(false),
+    ACCEPTED_RATIO(true),
+    AVERAGE_SCORE(true);
+
+    public static final int SUM_QUESTIONS = 0;
+    public static final int SUM_SCORE = 1;
+    public static final int SUM_VIEWS = 2;
+    public static final int SUM_ANSWERS = 3;
+    public static final int SUM_ACCEPTED = 4;
+    public static final int SUM_COUNT = 5;
+
+    private final boolean ratio;
+
+    TopicTrendMetric(boolean ratio) {
+        this.ratio = ratio;
+    }
+
+    public boolean isRatio() {
+        return ratio;
+    }
+
+    /**
+     * @param sums 长度为 {@link #SUM_COUNT} 的总和数组
+     * @return 比率类指标在没有问题时为 {@code null}
+     */
+    public Double evaluate(long[] sums) {
+        long questions = sums[SUM_QUESTIONS];
+        return switch (this) {
+            case QUESTIONS -> (double) questions;
+            case SCORE -> (double) sums[SUM_SCORE];
+            case VIEWS -> (double) sums[SUM_VIEWS];
+            case ANSWERS -> (double) sums[SUM_ANSWERS];
+            case ACCEPTED_RATIO -> questions == 0 ? null : (double) sums[SUM_ACCEPTED] / questions;
+            case AVERAGE_SCORE -> questions == 0 ? null : (double) sums[SUM_SCORE] / questions;
+        };
+    }
 
-    public static TopicTrendMetric from(String raw) {
-        if (raw == null || raw.isBlank()) {
-            return QUESTIONS;
+    /**
+     * 解析多个指标（可重复参数或以逗号分隔），去重并保持顺序；为空时只返回 {@code QUESTIONS}。
+     * 无法识别的名称会被拒绝。
+     */
+    public static List<TopicTrendMetric> fromAll(List<String> raw) {
+        List<TopicTrendMetric> metrics = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        if (raw != null) {
+            for (String value : raw) {
+                if (value == null || value.isBlank()) {
+                    continue;
+                }
+                try {
+                    TopicTrendMetric metric = TopicTrendMetric.valueOf(value.trim().toUpperCase());
+                    if (!metrics.contains(metric)) {
+                        metrics.add(metric);
+                    }
+                } catch (IllegalArgumentException ex) {
+                    invalid.add(value.trim());
+                }
+            }
         }
-        try {
-            return TopicTrendMetric.valueOf(raw.trim().toUpperCase());
-        } catch (IllegalArgumentException ex) {
-            return QUESTIONS;
+        if (!invalid.isEmpty()) {
+            throw new IllegalArgumentException("Invalid metrics: " + String.join(", ", invalid));
         }
+        return metrics.isEmpty() ? List.of(QUESTIONS) : List.copyOf(metrics);
     }
 }
@@ -1,10 +1,20 @@
 package cs209a.finalproject_demo.service.dto;
 
 import java.time.Instant;
+import java.util.Map;
 
+/**
+ * @param value          首个请求指标在该桶的值
+ * @param values         每个请求指标在该桶的值
+ * @param movingAverages 截至该桶（含）最近 {@code window} 个桶的滑动平均，未请求窗口时为 {@code null}
+ * @param yearOverYear   与一年前同一时间桶相比的差值，未请求或无法比较时为 {@code null}
+ */
 public record TopicTrendPoint(
         Instant bucket,
         long questionCount,
         long scoreSum,
-        long value) {
+        Double value,
+        Map<TopicTrendMetric, Double> values,
+        Map<TopicTrendMetric, Double> movingAverages,
+        Map<TopicTrendMetric, Double> yearOverYear) {
 }
@@ -9,5 +9,8 @@ public record TopicTrendResponse(
         Instant to,
         String bucket,
         TopicTrendMetric metric,
+        List<TopicTrendMetric> metrics,
+        int window,
+        boolean yoy,
         List<TopicTrendSeries> series) {
 }
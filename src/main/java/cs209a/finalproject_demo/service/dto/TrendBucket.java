@@ -0,0 +1,59 @@
+package cs209a.finalproject_demo.service.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.Locale;
+
+/**
+ * 趋势的时间桶粒度，桶一律按 UTC 日期切分；周以 ISO 周（周一开始）计。
+ */
+public enum TrendBucket {
+    DAY,
+    WEEK,
+    MONTH,
+    QUARTER,
+    YEAR;
+
+    public static TrendBucket from(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return MONTH;
+        }
+        try {
+            return TrendBucket.valueOf(raw.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException ex) {
+            return MONTH;
+        }
+    }
+
+    public String label() {
+        return name().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * 能否由按月汇总的行合并得到。
+     */
+    public boolean spansWholeMonths() {
+        return this == MONTH || this == QUARTER || this == YEAR;
+    }
+
+    public LocalDate start(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(DayOfWeek.MONDAY);
+            case MONTH -> day.withDayOfMonth(1);
+            case QUARTER -> day.with(IsoFields.DAY_OF_QUARTER, 1);
+            case YEAR -> day.withDayOfYear(1);
+        };
+    }
+
+    public LocalDate next(LocalDate start) {
+        return switch (this) {
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+            case QUARTER -> start.plusMonths(3);
+            case YEAR -> start.plusYears(1);
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package cs209a.finalproject_demo.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 分頁式的非負 long 位圖。每頁 65536 個位元（8 KB），只在頁內有元素時才分配，
+ * 因此稀疏的 ID 只佔少量頁面，而 Stack Overflow 這類接近連續的 ID 每個只需 1 bit。
+ * 非執行緒安全，由呼叫端負責同步。
+ */
+public class LongBitmap {
+
+    private static final int PAGE_BITS = 16;
+    private static final int WORDS_PER_PAGE = 1 << (PAGE_BITS - 6);
+    private static final int DIRECT_PAGES = 1 << (31 - PAGE_BITS);
+
+    private long[][] pages = new long[16][];
+    private final Map<Long, long[]> farPages = new HashMap<>();
+    private long size;
+
+    public boolean contains(long value) {
+        long[] page = page(value, false);
+        return page != null && (page[wordIndex(value)] & bit(value)) != 0;
+    }
+
+    /**
+     * @return 若原本不存在則回傳 {@code true}
+     */
+    public boolean add(long value) {
+        long[] page = page(value, true);
+        int word = wordIndex(value);
+        long mask = bit(value);
+        if ((page[word] & mask) != 0) {
+            return false;
+        }
+        page[word] |= mask;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long value) {
+        long[] page = page(value, false);
+        if (page == null) {
+            return false;
+        }
+        int word = wordIndex(value);
+        long mask = bit(value);
+        if ((page[word] & mask) == 0) {
+            return false;
+        }
+        page[word] &= ~mask;
+        size--;
+        return true;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void clear() {
+        pages = new long[16][];
+        farPages.clear();
+        size = 0;
+    }
+
+    private long[] page(long value, boolean create) {
+        if (value < 0) {
+            throw new IllegalArgumentException("LongBitmap 只接受非負值：" + value);
+        }
+        long pageIndex = value >>> PAGE_BITS;
+        if (pageIndex < DIRECT_PAGES) {
+            int index = (int) pageIndex;
+            if (index >= pages.length) {
+                if (!create) {
+                    return null;
+                }
+                long[][] grown = new long[Math.min(DIRECT_PAGES, Math.max(index + 1, pages.length * 2))][];
+                System.arraycopy(pages, 0, grown, 0, pages.length);
+                pages = grown;
+            }
+            long[] page = pages[index];
+            if (page == null && create) {
+                page = new long[WORDS_PER_PAGE];
+                pages[index] = page;
+            }
+            return page;
+        }
+        return create
+                ? farPages.computeIfAbsent(pageIndex, key -> new long[WORDS_PER_PAGE])
+                : farPages.get(pageIndex);
+    }
+
+    private static int wordIndex(long value) {
+        return (int) ((value >>> 6) & (WORDS_PER_PAGE - 1));
+    }
+
+    private static long bit(long value) {
+        return 1L << (value & 63);
+    }
+}
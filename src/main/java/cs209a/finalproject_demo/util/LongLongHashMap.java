@@ -0,0 +1,112 @@
+package cs209a.finalproject_demo.util;
+
+import java.util.Arrays;
+
+/**
+ * 以開放定址（線性探測）實作的 long → long 映射，鍵與值都存放在原始型別陣列中，
+ * 每個項目約 27 bytes，遠小於 {@code HashMap<Long, Long>} 的裝箱開銷。
+ * 不支援刪除；非執行緒安全，由呼叫端負責同步。
+ */
+public class LongLongHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final double MAX_LOAD = 0.6;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int resizeAt;
+
+    public LongLongHashMap() {
+        this(1024);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public long get(long key, long defaultValue) {
+        checkKey(key);
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == EMPTY) {
+                return defaultValue;
+            }
+        }
+    }
+
+    public void put(long key, long value) {
+        checkKey(key);
+        if (insert(keys, values, key, value)) {
+            if (++size > resizeAt) {
+                rehash(keys.length * 2);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        allocate(keys.length);
+        size = 0;
+    }
+
+    /**
+     * @return 若為新鍵則回傳 {@code true}
+     */
+    private static boolean insert(long[] keys, long[] values, long key, long value) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                values[slot] = value;
+                return false;
+            }
+            if (current == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                return true;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(keys, values, oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(16, expectedSize) / MAX_LOAD);
+        return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("LongLongHashMap 不接受 Long.MIN_VALUE 作為鍵");
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package cs209a.finalproject_demo.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 一次掃描即可判斷文件命中哪些分組的多模式比對器，取代對每個正則各掃一次全文。
+ * <p>
+ * 每條正則（{@link Pattern#CASE_INSENSITIVE} 語意）先展開成有限個字面字串，合併進一個 Aho-Corasick 自動機；
+ * 掃描時只做 ASCII 小寫化並把連續空白收斂成一個空格。自動機命中只代表候選位置，
+ * 會再以原正則在該位置（透明邊界，{@code \b} 能看到區域外的字元）確認，因此語意與逐條 {@code find()} 完全一致。
+ * 無法展開的正則（例如含 {@code *}、{@code .}、環視）退回原本的逐條掃描。
+ * <p>
+ * 建構後不可變，可在多個執行緒間共用。
+ */
+public final class MultiPatternMatcher {
+
+    private static final int ALPHABET = 128;
+    private static final int MAX_EXPANSIONS = 256;
+
+    private final int groupCount;
+    private final int[] delta;
+    private final Output[][] outputs;
+    private final int window;
+    private final List<Fallback> fallbacks;
+
+    private MultiPatternMatcher(int groupCount, int[] delta, Output[][] outputs, int window, List<Fallback> fallbacks) {
+        this.groupCount = groupCount;
+        this.delta = delta;
+        this.outputs = outputs;
+        this.window = window;
+        this.fallbacks = fallbacks;
+    }
+
+    /**
+     * @param groups 每個分組的正則清單，回傳結果以清單中的索引表示分組
+     */
+    public static MultiPatternMatcher compile(List<List<String>> groups) {
+        Builder builder = new Builder();
+        List<Fallback> fallbacks = new ArrayList<>();
+        for (int group = 0; group < groups.size(); group++) {
+            for (String regex : groups.get(group)) {
+                Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+                List<String> literals = LiteralExpander.expand(regex);
+                if (literals == null) {
+                    fallbacks.add(new Fallback(group, pattern));
+                } else {
+                    for (String literal : literals) {
+                        builder.add(literal, group, pattern);
+                    }
+                }
+            }
+        }
+        return builder.build(groups.size(), fallbacks);
+    }
+
+    public int groupCount() {
+        return groupCount;
+    }
+
+    /**
+     * 無法展開、仍需逐條掃描的正則數量。
+     */
+    public int fallbackCount() {
+        return fallbacks.size();
+    }
+
+    /**
+     * @return 命中的分組索引
+     */
+    public BitSet match(CharSequence text) {
+        BitSet hits = new BitSet(groupCount);
+        int remaining = groupCount;
+        int length = text.length();
+        int mask = window - 1;
+        int[] origins = new int[window];
+        int position = 0;
+        int state = 0;
+        boolean previousSpace = false;
+        Map<Pattern, Matcher> matchers = null;
+
+        for (int i = 0; i < length && remaining > 0; i++) {
+            char c = text.charAt(i);
+            if (isWhitespace(c)) {
+                if (previousSpace) {
+                    continue;
+                }
+                previousSpace = true;
+                c = ' ';
+            } else {
+                previousSpace = false;
+                if (c >= 'A' && c <= 'Z') {
+                    c = (char) (c + ('a' - 'A'));
+                }
+            }
+            origins[position & mask] = i;
+            position++;
+            state = c < ALPHABET ? delta[state * ALPHABET + c] : 0;
+
+            Output[] candidates = outputs[state];
+            if (candidates == null) {
+                continue;
+            }
+            for (Output candidate : candidates) {
+                if (hits.get(candidate.group())) {
+                    continue;
+                }
+                if (matchers == null) {
+                    matchers = new HashMap<>();
+                }
+                int start = origins[(position - candidate.length()) & mask];
+                Matcher matcher = matchers.computeIfAbsent(candidate.pattern(), pattern -> pattern.matcher(text)
+                        .useTransparentBounds(true)
+                        .useAnchoringBounds(false));
+                if (verify(matcher, text, start, candidate.leadingSpace())) {
+                    hits.set(candidate.group());
+                    remaining--;
+                }
+            }
+        }
+
+        for (Fallback fallback : fallbacks) {
+            if (!hits.get(fallback.group()) && fallback.pattern().matcher(text).find()) {
+                hits.set(fallback.group());
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 收斂後的空格對應到空白序列的第一個字元；以空白開頭的字面字串須逐一嘗試序列中的每個起點。
+     */
+    private static boolean verify(Matcher matcher, CharSequence text, int start, boolean leadingSpace) {
+        int length = text.length();
+        int end = start + 1;
+        if (leadingSpace) {
+            while (end < length && isWhitespace(text.charAt(end))) {
+                end++;
+            }
+        }
+        for (int i = start; i < end; i++) {
+            if (matcher.region(i, length).lookingAt()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 與 {@code \s} 相同的空白集合。
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private record Output(int group, int length, Pattern pattern, boolean leadingSpace) {
+    }
+
+    private record Fallback(int group, Pattern pattern) {
+    }
+
+    private static final class Builder {
+
+        private final List<int[]> transitions = new ArrayList<>();
+        private final List<List<Output>> terminal = new ArrayList<>();
+        private int longest = 1;
+
+        private Builder() {
+            newState();
+        }
+
+        private int newState() {
+            int[] row = new int[ALPHABET];
+            Arrays.fill(row, -1);
+            transitions.add(row);
+            terminal.add(new ArrayList<>());
+            return transitions.size() - 1;
+        }
+
+        private void add(String literal, int group, Pattern pattern) {
+            int state = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                char c = literal.charAt(i);
+                int next = transitions.get(state)[c];
+                if (next < 0) {
+                    next = newState();
+                    transitions.get(state)[c] = next;
+                }
+                state = next;
+            }
+            terminal.get(state).add(new Output(group, literal.length(), pattern, literal.charAt(0) == ' '));
+            longest = Math.max(longest, literal.length());
+        }
+
+        private MultiPatternMatcher build(int groupCount, List<Fallback> fallbacks) {
+            int states = transitions.size();
+            int[] delta = new int[states * ALPHABET];
+            int[] failure = new int[states];
+            List<List<Output>> merged = new ArrayList<>(terminal);
+            Deque<Integer> queue = new ArrayDeque<>();
+
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = transitions.get(0)[c];
+                if (next < 0) {
+                    delta[c] = 0;
+                } else {
+                    delta[c] = next;
+                    failure[next] = 0;
+                    queue.add(next);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                List<Output> inherited = merged.get(failure[state]);
+                if (!inherited.isEmpty()) {
+                    List<Output> combined = new ArrayList<>(merged.get(state));
+                    combined.addAll(inherited);
+                    merged.set(state, combined);
+                }
+                for (int c = 0; c < ALPHABET; c++) {
+                    int next = transitions.get(state)[c];
+                    if (next < 0) {
+                        delta[state * ALPHABET + c] = delta[failure[state] * ALPHABET + c];
+                    } else {
+                        delta[state * ALPHABET + c] = next;
+                        failure[next] = delta[failure[state] * ALPHABET + c];
+                        queue.add(next);
+                    }
+                }
+            }
+
+            Output[][] outputs = new Output[states][];
+            for (int state = 0; state < states; state++) {
+                List<Output> list = merged.get(state);
+                if (!list.isEmpty()) {
+                    outputs[state] = list.toArray(Output[]::new);
+                }
+            }
+            int window = Integer.highestOneBit(longest - 1) << 1;
+            return new MultiPatternMatcher(groupCount, delta, outputs, Math.max(2, window), List.copyOf(fallbacks));
+        }
+    }
+
+    /**
+     * 把正則的一個子集展開成所有可能的字面字串（已小寫化並收斂空白）：
+     * 字面字元與跳脫字元、{@code \b}、{@code \s}、{@code \s+}、字元類別、分組與 {@code |}、以及 {@code ?}。
+     * 遇到其他語法或展開數量過多時回傳 {@code null}。
+     */
+    static final class LiteralExpander {
+
+        private final String regex;
+        private int pos;
+
+        private LiteralExpander(String regex) {
+            this.regex = regex;
+        }
+
+        static List<String> expand(String regex) {
+            try {
+                LiteralExpander expander = new LiteralExpander(regex);
+                List<String> raw = expander.alternation();
+                if (expander.pos != regex.length()) {
+                    return null;
+                }
+                List<String> literals = new ArrayList<>();
+                for (String literal : raw) {
+                    String normalized = normalize(literal);
+                    if (normalized.isEmpty()) {
+                        return null;
+                    }
+                    if (!literals.contains(normalized)) {
+                        literals.add(normalized);
+                    }
+                }
+                return literals;
+            } catch (UnsupportedOperationException e) {
+                return null;
+            }
+        }
+
+        private static String normalize(String literal) {
+            StringBuilder builder = new StringBuilder(literal.length());
+            boolean previousSpace = false;
+            for (int i = 0; i < literal.length(); i++) {
+                char c = literal.charAt(i);
+                if (c >= ALPHABET) {
+                    throw new UnsupportedOperationException();
+                }
+                if (isWhitespace(c)) {
+                    if (!previousSpace) {
+                        builder.append(' ');
+                    }
+                    previousSpace = true;
+                    continue;
+                }
+                previousSpace = false;
+                builder.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+            }
+            return builder.toString();
+        }
+
+        private List<String> alternation() {
+            List<String> result = new ArrayList<>(sequence());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                result.addAll(sequence());
+                checkSize(result);
+            }
+            return result;
+        }
+
+        private List<String> sequence() {
+            List<String> result = List.of("");
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                List<String> atom = atom();
+                if (pos < regex.length() && regex.charAt(pos) == '?') {
+                    pos++;
+                    List<String> optional = new ArrayList<>(atom);
+                    optional.add("");
+                    atom = optional;
+                }
+                if (pos < regex.length() && "*+{".indexOf(regex.charAt(pos)) >= 0) {
+                    throw new UnsupportedOperationException();
+                }
+                List<String> combined = new ArrayList<>(result.size() * atom.size());
+                for (String prefix : result) {
+                    for (String suffix : atom) {
+                        combined.add(prefix + suffix);
+                    }
+                }
+                checkSize(combined);
+                result = combined;
+            }
+            return result;
+        }
+
+        private List<String> atom() {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case '(' -> {
+                    if (regex.startsWith("?:", pos)) {
+                        pos += 2;
+                    } else if (pos < regex.length() && regex.charAt(pos) == '?') {
+                        throw new UnsupportedOperationException();
+                    }
+                    List<String> inner = alternation();
+                    if (pos >= regex.length() || regex.charAt(pos) != ')') {
+                        throw new UnsupportedOperationException();
+                    }
+                    pos++;
+                    return inner;
+                }
+                case '[' -> {
+                    return characterClass();
+                }
+                case '\\' -> {
+                    return escape();
+                }
+                case '.', '^', '$', '*', '+', '?', '{', '}', ']' -> throw new UnsupportedOperationException();
+                default -> {
+                    return List.of(String.valueOf(c));
+                }
+            }
+        }
+
+        private List<String> escape() {
+            if (pos >= regex.length()) {
+                throw new UnsupportedOperationException();
+            }
+            char c = regex.charAt(pos++);
+            if (c == 'b') {
+                return List.of("");
+            }
+            if (c == 's') {
+                // \s+ 在收斂空白後等同單一空格
+                if (pos < regex.length() && regex.charAt(pos) == '+') {
+                    pos++;
+                }
+                return List.of(" ");
+            }
+            if (Character.isLetterOrDigit(c)) {
+                throw new UnsupportedOperationException();
+            }
+            return List.of(String.valueOf(c));
+        }
+
+        private List<String> characterClass() {
+            if (pos < regex.length() && regex.charAt(pos) == '^') {
+                throw new UnsupportedOperationException();
+            }
+            List<String> options = new ArrayList<>();
+            while (pos < regex.length() && regex.charAt(pos) != ']') {
+                char c = regex.charAt(pos++);
+                if (c == '\\') {
+                    if (pos >= regex.length()) {
+                        throw new UnsupportedOperationException();
+                    }
+                    char escaped = regex.charAt(pos++);
+                    if (escaped == 's') {
+                        options.add(" ");
+                    } else if (Character.isLetterOrDigit(escaped)) {
+                        throw new UnsupportedOperationException();
+                    } else {
+                        options.add(String.valueOf(escaped));
+                    }
+                } else if (c == '[' || (c == '-' && !options.isEmpty() && pos < regex.length() && regex.charAt(pos) != ']')) {
+                    // 巢狀類別與範圍不支援
+                    throw new UnsupportedOperationException();
+                } else {
+                    options.add(String.valueOf(c));
+                }
+            }
+            if (pos >= regex.length() || options.isEmpty()) {
+                throw new UnsupportedOperationException();
+            }
+            pos++;
+            return options;
+        }
+
+        private static void checkSize(List<String> expansions) {
+            if (expansions.size() > MAX_EXPANSIONS) {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package cs209a.finalproject_demo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Space-Saving 頻繁項目摘要（Metwally 等人），以固定數量的計數器追蹤串流中出現最多的非負 long 鍵。
+ * <p>
+ * 已追蹤的鍵直接加一；計數器用完時，新鍵取代目前計數最小的鍵，沿用其計數加一，並把被取代的計數記為誤差。
+ * 因此每個估計值 {@code count} 滿足 {@code count - error <= 真實次數 <= count}，誤差不超過最小計數，
+ * 而最小計數不超過 {@code total / capacity}；未被追蹤的鍵真實次數也不超過最小計數。
+ * <p>
+ * 計數器以最小堆積存放在原始型別陣列中，另以開放定址表記錄鍵在堆積中的位置，
+ * 每個計數器約 {@value #BYTES_PER_COUNTER} bytes，建立後不再配置記憶體。不支援遞減；非執行緒安全，由呼叫端負責同步。
+ */
+public class SpaceSavingSketch {
+
+    /** 堆積三個 long（24 bytes）加上負載不超過 1/2 的位置表（每格 long + int，最多 4 格）。 */
+    public static final int BYTES_PER_COUNTER = 72;
+
+    private static final long EMPTY = -1;
+
+    private final int capacity;
+    private final long[] heapKeys;
+    private final long[] heapCounts;
+    private final long[] heapErrors;
+    private final long[] tableKeys;
+    private final int[] tablePositions;
+    private int size;
+    private long total;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity 必須為正數");
+        }
+        this.capacity = capacity;
+        heapKeys = new long[capacity];
+        heapCounts = new long[capacity];
+        heapErrors = new long[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        tableKeys = new long[tableSize];
+        tablePositions = new int[tableSize];
+        Arrays.fill(tableKeys, EMPTY);
+    }
+
+    /**
+     * 依記憶體預算換算計數器數量。
+     */
+    public static int capacityFor(long budgetBytes) {
+        return (int) Math.max(1, Math.min(1 << 28, budgetBytes / BYTES_PER_COUNTER));
+    }
+
+    public void offer(long key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("SpaceSavingSketch 只接受非負的鍵");
+        }
+        total++;
+        int slot = find(key);
+        if (slot >= 0) {
+            int position = tablePositions[slot];
+            heapCounts[position]++;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            int position = size++;
+            heapKeys[position] = key;
+            heapCounts[position] = 1;
+            heapErrors[position] = 0;
+            put(key, position);
+            siftUp(position);
+            return;
+        }
+        long minimum = heapCounts[0];
+        remove(heapKeys[0]);
+        heapKeys[0] = key;
+        heapCounts[0] = minimum + 1;
+        heapErrors[0] = minimum;
+        put(key, 0);
+        siftDown(0);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 已處理的鍵總數
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @return 任何未被追蹤的鍵真實次數的上界，也是所有估計值誤差的上界；計數器未用完時為 0
+     */
+    public long maxError() {
+        return size < capacity ? 0 : heapCounts[0];
+    }
+
+    /**
+     * 取出估計次數最高的 {@code limit} 個鍵，依估計次數遞減排序，同次數時依鍵遞增。
+     * {@link Entry#guaranteed()} 表示該鍵的下界不低於第 {@code limit + 1} 名的估計值（或未被追蹤鍵的上界），
+     * 因此一定屬於真實的前 {@code limit} 名。
+     */
+    public List<Entry> top(int limit) {
+        Comparator<Entry> ranking = Comparator.comparingLong(Entry::count).reversed()
+                .thenComparingLong(Entry::key);
+        PriorityQueue<Entry> heap = new PriorityQueue<>(limit + 2, ranking.reversed());
+        for (int i = 0; i < size; i++) {
+            heap.add(new Entry(heapKeys[i], heapCounts[i], heapErrors[i], false));
+            if (heap.size() > limit + 1) {
+                heap.poll();
+            }
+        }
+        List<Entry> ranked = new ArrayList<>(heap);
+        ranked.sort(ranking);
+        long threshold = maxError();
+        if (ranked.size() > limit) {
+            threshold = Math.max(threshold, ranked.remove(limit).count());
+        }
+        List<Entry> result = new ArrayList<>(ranked.size());
+        for (Entry entry : ranked) {
+            result.add(new Entry(entry.key(), entry.count(), entry.error(), entry.lowerBound() >= threshold));
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(tableKeys, EMPTY);
+        size = 0;
+        total = 0;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heapCounts[parent] <= heapCounts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = position * 2 + 1;
+            int right = left + 1;
+            if (left < size && heapCounts[left] < heapCounts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heapCounts[right] < heapCounts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long key = heapKeys[i];
+        long count = heapCounts[i];
+        long error = heapErrors[i];
+        heapKeys[i] = heapKeys[j];
+        heapCounts[i] = heapCounts[j];
+        heapErrors[i] = heapErrors[j];
+        heapKeys[j] = key;
+        heapCounts[j] = count;
+        heapErrors[j] = error;
+        tablePositions[find(heapKeys[i])] = i;
+        tablePositions[find(heapKeys[j])] = j;
+    }
+
+    private int find(long key) {
+        int mask = tableKeys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            long current = tableKeys[slot];
+            if (current == key) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void put(long key, int position) {
+        int mask = tableKeys.length - 1;
+        int slot = slot(key, mask);
+        while (tableKeys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        tableKeys[slot] = key;
+        tablePositions[slot] = position;
+    }
+
+    /**
+     * 線性探測的刪除：把後面同一探測鏈上的項目往前移補洞，不留墓碑。
+     */
+    private void remove(long key) {
+        int mask = tableKeys.length - 1;
+        int hole = find(key);
+        for (int next = (hole + 1) & mask; tableKeys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(tableKeys[next], mask);
+            boolean movable = hole <= next
+                    ? home <= hole || home > next
+                    : home <= hole && home > next;
+            if (movable) {
+                tableKeys[hole] = tableKeys[next];
+                tablePositions[hole] = tablePositions[next];
+                hole = next;
+            }
+        }
+        tableKeys[hole] = EMPTY;
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * @param count 估計次數（真實次數的上界）
+     * @param error 估計值可能高估的次數
+     */
+    public record Entry(long key, long count, long error, boolean guaranteed) {
+
+        public long lowerBound() {
+            return count - error;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.importer.QuestionsImportedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class AnalyticsResultCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DatasetVersion datasetVersion = new DatasetVersion(registry);
+
+    @Test
+    void reusesResultUntilDatasetVersionChanges() {
+        AnalyticsResultCache cache = new AnalyticsResultCache(datasetVersion, registry, 8);
+        AtomicInteger computations = new AtomicInteger();
+
+        String firstEtag = cache.lookup("trends", List.of("java", 2024), computations::incrementAndGet).etag();
+        assertEquals(0, computations.get());
+        assertEquals(1, cache.lookup("trends", List.of("java", 2024), computations::incrementAndGet).value());
+        assertEquals(1, cache.lookup("trends", List.of("java", 2024), computations::incrementAndGet).value());
+
+        datasetVersion.onQuestionsImported(new QuestionsImportedEvent(List.of(), List.of()));
+        AnalyticsResultCache.CachedResult<Integer> refreshed =
+                cache.lookup("trends", List.of("java", 2024), computations::incrementAndGet);
+        assertNotEquals(firstEtag, refreshed.etag());
+        assertEquals(2, refreshed.value());
+        assertEquals(1.0, registry.get("analytics.cache.invalidations").counter().count());
+        assertEquals(1.0, registry.get("analytics.cache.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+        AnalyticsResultCache cache = new AnalyticsResultCache(datasetVersion, registry, 2);
+        AtomicInteger computations = new AtomicInteger();
+
+        cache.lookup("cooccurrence", List.of(1), computations::incrementAndGet).value();
+        cache.lookup("cooccurrence", List.of(2), computations::incrementAndGet).value();
+        cache.lookup("cooccurrence", List.of(1), computations::incrementAndGet).value();
+        cache.lookup("cooccurrence", List.of(3), computations::incrementAndGet).value();
+
+        assertEquals(1, cache.lookup("cooccurrence", List.of(1), computations::incrementAndGet).value());
+        assertEquals(4, cache.lookup("cooccurrence", List.of(2), computations::incrementAndGet).value());
+        assertEquals(2.0, registry.get("analytics.cache.evictions").counter().count());
+    }
+}
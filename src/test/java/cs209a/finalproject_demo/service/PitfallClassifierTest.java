@@ -0,0 +1,39 @@
+package cs209a.finalproject_demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PitfallClassifierTest {
+
+    @Test
+    void installingSameRulesKeepsVersion() {
+        PitfallClassifier classifier = new PitfallClassifier();
+        PitfallClassifier.Taxonomy initial = classifier.current();
+
+        assertSame(initial, classifier.install(AnalysisService.MULTITHREADING_PITFALL_KEYWORDS));
+    }
+
+    @Test
+    void installSwapsVersionWithoutAffectingHeldSnapshot() {
+        PitfallClassifier classifier = new PitfallClassifier();
+        PitfallClassifier.Taxonomy initial = classifier.current();
+
+        Map<String, List<String>> edited = new LinkedHashMap<>(AnalysisService.MULTITHREADING_PITFALL_KEYWORDS);
+        edited.remove("Deadlocks");
+        edited.put("Executor Misuse", List.of("\\bshutdownNow\\b"));
+        PitfallClassifier.Taxonomy installed = classifier.install(edited);
+
+        assertSame(installed, classifier.current());
+        assertEquals(initial.version() + 1, installed.version());
+        assertNotEquals(initial.hash(), installed.hash());
+        assertEquals(List.of("Deadlocks"), initial.classify("A deadlock", "after shutdownNow()"));
+        assertEquals(List.of("Executor Misuse"), classifier.classify("A deadlock", "after shutdownNow()"));
+    }
+}
@@ -0,0 +1,123 @@
+package cs209a.finalproject_demo.service;
+
+import cs209a.finalproject_demo.repository.QuestionRepository;
+import cs209a.finalproject_demo.repository.TagMonthStatRepository;
+import cs209a.finalproject_demo.repository.projection.TopicTrendRow;
+import cs209a.finalproject_demo.service.dto.TopicTrendMetric;
+import cs209a.finalproject_demo.service.dto.TopicTrendPoint;
+import cs209a.finalproject_demo.service.dto.TopicTrendResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TopicTrendServiceTest {
+
+    /** 每天 java 标签各有一个问题，得分为 1。 */
+    private static final LocalDate DATA_START = LocalDate.of(2023, 1, 1);
+    private static final LocalDate DATA_END = LocalDate.of(2025, 1, 1);
+
+    private final QuestionRepository questionRepository = mock(QuestionRepository.class);
+    private final TopicTrendService service = createService();
+
+    @Test
+    void midMonthFromCountsSameQuestionsWithAndWithoutWindow() {
+        LocalDate from = LocalDate.of(2024, 3, 15);
+        LocalDate to = LocalDate.of(2024, 5, 31);
+
+        TopicTrendPoint plain = firstPoint(service.getTrends(
+                List.of("java"), from, to, "month", List.of(TopicTrendMetric.QUESTIONS), 0, false).value());
+        TopicTrendPoint windowed = firstPoint(service.getTrends(
+                List.of("java"), from, to, "month", List.of(TopicTrendMetric.QUESTIONS), 3, false).value());
+        List<TopicTrendPoint> withYoyPoints = service.getTrends(
+                List.of("java"), from, to, "month", List.of(TopicTrendMetric.QUESTIONS), 0, true)
+                .value().series().get(0).points();
+        TopicTrendPoint withYoy = withYoyPoints.get(0);
+
+        // 3 月 15 日至 31 日共 17 天
+        assertEquals(17, plain.questionCount());
+        assertEquals(plain.questionCount(), windowed.questionCount());
+        assertEquals(plain.values(), windowed.values());
+        assertEquals(plain.questionCount(), withYoy.questionCount());
+        // 窗口仍包含 1、2 月的完整历史：(31 + 29 + 17) / 3
+        assertEquals((31 + 29 + 17) / 3.0, windowed.movingAverages().get(TopicTrendMetric.QUESTIONS), 1e-9);
+        // 3 月只含 17 天，与一年前完整的 2023 年 3 月相比没有意义
+        assertNull(withYoy.yearOverYear().get(TopicTrendMetric.QUESTIONS));
+        // 4 月是完整的桶：30 - 30
+        assertEquals(0.0, withYoyPoints.get(1).yearOverYear().get(TopicTrendMetric.QUESTIONS), 1e-9);
+    }
+
+    private static TopicTrendPoint firstPoint(TopicTrendResponse response) {
+        return response.series().get(0).points().get(0);
+    }
+
+    private TopicTrendService createService() {
+        when(questionRepository.findDailyTopicCounts(any(), any(), any())).thenAnswer(invocation -> {
+            LocalDate fromDay = invocation.getArgument(1);
+            LocalDate toDay = invocation.getArgument(2);
+            LocalDate start = fromDay.isBefore(DATA_START) ? DATA_START : fromDay;
+            LocalDate end = toDay.isAfter(DATA_END) ? DATA_END : toDay;
+            return start.datesUntil(end).map(TopicTrendServiceTest::dailyRow).toList();
+        });
+        TagDictionaryService tagDictionary = mock(TagDictionaryService.class);
+        when(tagDictionary.exists("java")).thenReturn(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AnalyticsResultCache cache = new AnalyticsResultCache(new DatasetVersion(registry), registry, 8);
+        return new TopicTrendService(
+                questionRepository,
+                mock(TagMonthStatRepository.class),
+                mock(TagMonthRollupService.class),
+                tagDictionary,
+                cache,
+                mock(ColumnarQuestionStore.class));
+    }
+
+    private static TopicTrendRow dailyRow(LocalDate day) {
+        Instant bucket = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        return new TopicTrendRow() {
+            @Override
+            public String getTag() {
+                return "java";
+            }
+
+            @Override
+            public Instant getBucket() {
+                return bucket;
+            }
+
+            @Override
+            public Long getQuestionCount() {
+                return 1L;
+            }
+
+            @Override
+            public Long getScoreSum() {
+                return 1L;
+            }
+
+            @Override
+            public Long getViewSum() {
+                return 0L;
+            }
+
+            @Override
+            public Long getAnswerSum() {
+                return 0L;
+            }
+
+            @Override
+            public Long getAcceptedCount() {
+                return 0L;
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package cs209a.finalproject_demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactWeightedGraphTest {
+
+    @Test
+    void separatesCliquesJoinedByWeakEdge() {
+        CompactWeightedGraph.Builder builder = new CompactWeightedGraph.Builder();
+        for (int offset : new int[]{0, 4}) {
+            for (int a = 0; a < 4; a++) {
+                for (int b = a + 1; b < 4; b++) {
+                    builder.addEdge(offset + a, offset + b, 10);
+                }
+            }
+        }
+        builder.addEdge(3, 4, 1);
+        CompactWeightedGraph graph = builder.build();
+        assertEquals(13, graph.edgeCount());
+        assertEquals(121, graph.totalWeight());
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            CompactWeightedGraph.Labels result = graph.propagateLabels(20, pool);
+            int[] labels = result.labels();
+            assertTrue(result.converged());
+            for (int node = 1; node < 4; node++) {
+                assertEquals(labels[0], labels[node]);
+                assertEquals(labels[4], labels[node + 4]);
+            }
+            assertNotEquals(labels[0], labels[4]);
+            assertTrue(graph.modularity(labels) > 0.45);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void resultDoesNotDependOnParallelism() {
+        Random random = new Random(11);
+        int nodes = 2_000;
+        CompactWeightedGraph.Builder builder = new CompactWeightedGraph.Builder();
+        for (int a = 0; a < nodes; a++) {
+            for (int k = 0; k < 3; k++) {
+                // 同一組（每 50 個節點）內的邊較多、較重，組間只有少量輕邊
+                int b = random.nextInt(5) == 0 ? random.nextInt(nodes) : (a / 50) * 50 + random.nextInt(50);
+                if (a < b) {
+                    builder.addEdge(a, b, 1 + random.nextInt(a / 50 == b / 50 ? 20 : 2));
+                }
+            }
+        }
+        CompactWeightedGraph graph = builder.build();
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            CompactWeightedGraph.Labels sequential = graph.propagateLabels(100, single);
+            CompactWeightedGraph.Labels concurrent = graph.propagateLabels(100, parallel);
+            assertArrayEquals(sequential.labels(), concurrent.labels());
+            assertEquals(sequential.iterations(), concurrent.iterations());
+        } finally {
+            single.shutdownNow();
+            parallel.shutdownNow();
+        }
+    }
+}
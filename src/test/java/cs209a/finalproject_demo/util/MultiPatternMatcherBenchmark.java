@@ -0,0 +1,117 @@
+package cs209a.finalproject_demo.util;
+
+import cs209a.finalproject_demo.service.AnalysisService;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * 比較逐條 {@code Pattern.find()} 與 {@link MultiPatternMatcher} 在大篇幅問題內容上的耗時。
+ * 不屬於單元測試，手動執行：
+ * <pre>
+ * ./mvnw test-compile
+ * java -cp "target/classes:target/test-classes" cs209a.finalproject_demo.util.MultiPatternMatcherBenchmark [bodyKb] [documents]
+ * </pre>
+ */
+public class MultiPatternMatcherBenchmark {
+
+    private static final String[] FILLER = {
+            "<p>", "</p>", "<pre><code>", "</code></pre>", "public", "class", "void", "run()", "{", "}",
+            "executor", "submit", "the", "thread", "pool", "when", "I", "call", "list.add(item);", "counter++;",
+            "System.out.println(value);", "but", "sometimes", "it", "prints", "wrong", "value", "lock", "wait",
+            "Thread", "start", "iterator", "memory", "safe", "atomic", "concurrent", "modification", "happens"
+    };
+
+    private static final String[] SIGNALS = {
+            "race condition", "deadlock", "volatile", "thread-safe", "ConcurrentModificationException",
+            "InterruptedException", "happens-before", "AtomicInteger"
+    };
+
+    public static void main(String[] args) {
+        int bodyKb = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int documents = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        List<String> corpus = corpus(documents, bodyKb * 1024, new Random(7));
+
+        List<List<String>> groups = List.copyOf(AnalysisService.MULTITHREADING_PITFALL_KEYWORDS.values());
+        List<List<Pattern>> patterns = new ArrayList<>();
+        for (List<String> group : groups) {
+            patterns.add(group.stream().map(regex -> Pattern.compile(regex, Pattern.CASE_INSENSITIVE)).toList());
+        }
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(groups);
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            runRegex(corpus, patterns);
+            runMatcher(corpus, matcher);
+        }
+        long regexNanos = Long.MAX_VALUE;
+        long matcherNanos = Long.MAX_VALUE;
+        long regexHits = 0;
+        long matcherHits = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            regexHits = runRegex(corpus, patterns);
+            regexNanos = Math.min(regexNanos, System.nanoTime() - start);
+            start = System.nanoTime();
+            matcherHits = runMatcher(corpus, matcher);
+            matcherNanos = Math.min(matcherNanos, System.nanoTime() - start);
+        }
+
+        double megabytes = corpus.stream().mapToLong(String::length).sum() / (1024.0 * 1024.0);
+        System.out.printf("文件 %d 篇，每篇約 %d KB，共 %.1f MB%n", documents, bodyKb, megabytes);
+        System.out.printf("逐條正則：%8.1f ms  (%6.1f MB/s)  命中 %d%n",
+                regexNanos / 1e6, megabytes / (regexNanos / 1e9), regexHits);
+        System.out.printf("單次掃描：%8.1f ms  (%6.1f MB/s)  命中 %d%n",
+                matcherNanos / 1e6, megabytes / (matcherNanos / 1e9), matcherHits);
+        System.out.printf("加速比：%.2fx%n", (double) regexNanos / matcherNanos);
+        if (regexHits != matcherHits) {
+            throw new IllegalStateException("兩種做法的命中數不一致");
+        }
+    }
+
+    private static long runRegex(List<String> corpus, List<List<Pattern>> patterns) {
+        long hits = 0;
+        for (String document : corpus) {
+            for (List<Pattern> group : patterns) {
+                for (Pattern pattern : group) {
+                    if (pattern.matcher(document).find()) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static long runMatcher(List<String> corpus, MultiPatternMatcher matcher) {
+        long hits = 0;
+        for (String document : corpus) {
+            BitSet groups = matcher.match(document);
+            hits += groups.cardinality();
+        }
+        return hits;
+    }
+
+    /**
+     * 大部分文件只含少數或不含關鍵字，這是逐條正則最吃虧、也最接近實際資料的情況。
+     */
+    private static List<String> corpus(int documents, int bodyChars, Random random) {
+        List<String> corpus = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            StringBuilder body = new StringBuilder(bodyChars + 64);
+            while (body.length() < bodyChars) {
+                if (random.nextInt(2000) == 0) {
+                    body.append(SIGNALS[random.nextInt(SIGNALS.length)]);
+                } else {
+                    body.append(FILLER[random.nextInt(FILLER.length)]);
+                }
+                body.append(random.nextInt(10) == 0 ? '\n' : ' ');
+            }
+            corpus.add(body.toString());
+        }
+        return corpus;
+    }
+}
@@ -0,0 +1,88 @@
+package cs209a.finalproject_demo.util;
+
+import cs209a.finalproject_demo.service.AnalysisService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultiPatternMatcherTest {
+
+    private static final List<List<String>> PITFALL_GROUPS =
+            List.copyOf(AnalysisService.MULTITHREADING_PITFALL_KEYWORDS.values());
+
+    private static final String[] VOCABULARY = {
+            "race condition", "Race Conditions", "races", "data race", "lost updates", "check-then-act",
+            "readmodifywrite", "read-modify-write", "DEADLOCK", "deadlocked", "circular  wait", "lock ordering",
+            "locked forever", "wait\t\n forever", "waitforever", "volatile", "nonvolatile", "happens-before",
+            "happens before", "happensbefore", "happens\tbefore", "visibility issues", "memory barrier",
+            "MemoryConsistencyError", "thread-safe", "threadsafe", "thread safe", "thread-safety", "synchronized",
+            "unsynchronized", "ReentrantLock", "ConcurrentHashMap", "AtomicInteger", "AtomicLongs", "atomicreference",
+            "ConcurrentModificationException", "modify while iterating", "modify while iteration",
+            "fail-fast iterator", "failfast iterator", "Iterator.remove", "Iterator-remove", "CopyOnWriteArrayList",
+            "IllegalThreadStateException", "Thread.start", "thread.start()", "thread already started",
+            "Thread.join", "InterruptedException", "_volatile", "volatile_", "<p>", "</code>", "é", "volatile™",
+            "foo", "bar", "Thread", "start", ".", "-", "\u000B", "  "
+    };
+
+    @Test
+    void matchesSameGroupsAsIndividualPatterns() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(PITFALL_GROUPS);
+        assertEquals(0, matcher.fallbackCount());
+
+        Random random = new Random(42);
+        for (int round = 0; round < 20_000; round++) {
+            StringBuilder text = new StringBuilder();
+            int words = 1 + random.nextInt(12);
+            for (int i = 0; i < words; i++) {
+                text.append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+                text.append(random.nextInt(4) == 0 ? "" : random.nextBoolean() ? " " : "\n");
+            }
+            String document = text.toString();
+            assertEquals(expected(document), matcher.match(document), () -> "文本：" + document);
+        }
+    }
+
+    @Test
+    void unsupportedSyntaxFallsBackToRegex() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of(
+                List.of("\\bdead.*lock\\b"),
+                List.of("\\bvolatile\\b", "\\w+Exception\\b")));
+        assertEquals(2, matcher.fallbackCount());
+
+        BitSet hits = matcher.match("a DEAD-END lock in NullPointerException");
+        assertTrue(hits.get(0));
+        assertTrue(hits.get(1));
+        assertEquals(new BitSet(), matcher.match("nothing here"));
+    }
+
+    @Test
+    void leadingWhitespaceLiteralIsVerifiedAtEveryRunOffset() {
+        MultiPatternMatcher matcher = MultiPatternMatcher.compile(List.of(List.of("\\sfoo\\b")));
+        assertTrue(matcher.match("x \t foo").get(0));
+        assertEquals(new BitSet(), matcher.match("x \t food"));
+    }
+
+    private static BitSet expected(String document) {
+        BitSet hits = new BitSet();
+        List<List<Pattern>> compiled = new ArrayList<>();
+        for (List<String> group : PITFALL_GROUPS) {
+            compiled.add(group.stream().map(regex -> Pattern.compile(regex, Pattern.CASE_INSENSITIVE)).toList());
+        }
+        for (int group = 0; group < compiled.size(); group++) {
+            for (Pattern pattern : compiled.get(group)) {
+                if (pattern.matcher(document).find()) {
+                    hits.set(group);
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,63 @@
+package cs209a.finalproject_demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void countsExactlyWhileCountersRemain() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(8);
+        long[] stream = {3, 1, 3, 2, 3, 1, 7};
+        for (long key : stream) {
+            sketch.offer(key);
+        }
+        List<SpaceSavingSketch.Entry> top = sketch.top(2);
+        assertEquals(2, top.size());
+        assertEquals(new SpaceSavingSketch.Entry(3, 3, 0, true), top.get(0));
+        assertEquals(new SpaceSavingSketch.Entry(1, 2, 0, true), top.get(1));
+        assertEquals(0, sketch.maxError());
+        assertEquals(stream.length, sketch.total());
+    }
+
+    @Test
+    void estimatesBracketTrueCountsOnSkewedStream() {
+        int capacity = 64;
+        SpaceSavingSketch sketch = new SpaceSavingSketch(capacity);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            // 近似 Zipf 分佈：少數鍵出現很多次，長尾鍵很多
+            long key = (long) Math.floor(Math.pow(5_000, random.nextDouble()));
+            sketch.offer(key);
+            exact.merge(key, 1L, Long::sum);
+        }
+        assertEquals(capacity, sketch.size());
+        assertTrue(sketch.maxError() <= sketch.total() / capacity);
+
+        List<SpaceSavingSketch.Entry> top = sketch.top(capacity);
+        for (SpaceSavingSketch.Entry entry : top) {
+            long actual = exact.getOrDefault(entry.key(), 0L);
+            assertTrue(entry.lowerBound() <= actual && actual <= entry.count(), () -> "鍵 " + entry.key());
+            assertTrue(entry.error() <= sketch.maxError());
+        }
+        List<Map.Entry<Long, Long>> exactTop = exact.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(5)
+                .toList();
+        List<SpaceSavingSketch.Entry> guaranteed = sketch.top(5).stream()
+                .filter(SpaceSavingSketch.Entry::guaranteed)
+                .toList();
+        assertTrue(!guaranteed.isEmpty());
+        for (SpaceSavingSketch.Entry entry : guaranteed) {
+            assertTrue(exact.get(entry.key()) >= exactTop.get(4).getValue(), () -> "鍵 " + entry.key());
+        }
+    }
+}